@@ -0,0 +1,136 @@
+package src.main.eav.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import src.main.eav.EavApplication;
+
+/**
+ * Общее окружение для бенчмарков, которым нужна база: контекст приложения (без веб-сервера
+ * или с Tomcat на случайном порту) и PostgreSQL со сгенерированным набором данных.
+ * <p>
+ * Если задано системное свойство {@code eav.bench.jdbc-url} (а также {@code eav.bench.username}
+ * и {@code eav.bench.password}), используется указанная база, иначе поднимается контейнер
+ * Testcontainers. Схема создаётся миграциями Flyway, как и в приложении.
+ */
+final class BenchmarkEnvironment {
+
+    // Каждая сгенерированная сущность получает столько атрибутов: один типизированный "price"
+    // и текстовые "attr-1".."attr-9"
+    static final int ATTRIBUTES_PER_ENTITY = 10;
+
+    private final PostgreSQLContainer<?> container;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(PostgreSQLContainer<?> container, ConfigurableApplicationContext context) {
+        this.container = container;
+        this.context = context;
+    }
+
+    /**
+     * @param extraArgs дополнительные аргументы приложения, например --eav.hibernate-cache.enabled=true
+     */
+    static BenchmarkEnvironment start(int attributeCount, String... extraArgs) {
+        return start(attributeCount, WebApplicationType.NONE, extraArgs);
+    }
+
+    /**
+     * @param extraArgs дополнительные аргументы приложения, например --spring.profiles.active=...
+     */
+    static BenchmarkEnvironment startWeb(int attributeCount, String... extraArgs) {
+        String[] args = StringUtils.concatenateStringArrays(new String[]{"--server.port=0"}, extraArgs);
+        return start(attributeCount, WebApplicationType.SERVLET, args);
+    }
+
+    private static BenchmarkEnvironment start(int attributeCount, WebApplicationType webApplicationType,
+                                              String... extraArgs) {
+        PostgreSQLContainer<?> container = null;
+        String url = System.getProperty("eav.bench.jdbc-url");
+        String username = System.getProperty("eav.bench.username", "admin");
+        String password = System.getProperty("eav.bench.password", "admin");
+        if (url == null) {
+            container = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+            container.start();
+            url = container.getJdbcUrl();
+            username = container.getUsername();
+            password = container.getPassword();
+        }
+
+        // Аргументы командной строки приоритетнее application.properties
+        String[] args = {
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN"
+        };
+
+        SpringApplication application = new SpringApplication(EavApplication.class);
+        application.setWebApplicationType(webApplicationType);
+        ConfigurableApplicationContext context = application.run(StringUtils.concatenateStringArrays(args, extraArgs));
+
+        seed(context.getBean(JdbcTemplate.class), attributeCount);
+        return new BenchmarkEnvironment(container, context);
+    }
+
+    /**
+     * Заполняет схему целиком на стороне БД через generate_series: attributeCount атрибутов,
+     * attributeCount / ATTRIBUTES_PER_ENTITY сущностей и цепочка связей "next" между соседями.
+     * Значение "price" равно id % 1000, поэтому диапазон в 10 единиц отбирает ~1% сущностей.
+     */
+    private static void seed(JdbcTemplate jdbc, int attributeCount) {
+        int entityCount = Math.max(1, attributeCount / ATTRIBUTES_PER_ENTITY);
+
+        jdbc.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        jdbc.update("INSERT INTO aev.eav_entity (id, type) "
+                + "SELECT g, 'bench-' || g FROM generate_series(1, ?) g", entityCount);
+        // Справочник имён не очищается: приложение уже загрузило его в память
+        jdbc.update("INSERT INTO aev.eav_attribute_definition (name) "
+                + "SELECT CASE WHEN a = 0 THEN 'price' ELSE 'attr-' || a END FROM generate_series(0, ? - 1) a "
+                + "ON CONFLICT (name) DO NOTHING", ATTRIBUTES_PER_ENTITY);
+        jdbc.update("INSERT INTO aev.eav_attribute_value "
+                + "(id, entity_id, attribute_id, value, value_type, double_value) "
+                + "SELECT (e - 1) * ? + a + 1, e, d.id, "
+                + "CASE WHEN a = 0 THEN (e % 1000)::text ELSE 'value-' || e END, "
+                + "CASE WHEN a = 0 THEN 'DOUBLE' ELSE 'TEXT' END, "
+                + "CASE WHEN a = 0 THEN e % 1000 END "
+                + "FROM generate_series(1, ?) e, generate_series(0, ? - 1) a "
+                + "JOIN aev.eav_attribute_definition d ON d.name = CASE WHEN a = 0 THEN 'price' ELSE 'attr-' || a END",
+                ATTRIBUTES_PER_ENTITY, entityCount, ATTRIBUTES_PER_ENTITY);
+        // jsonb-копия атрибутов, как её записывает сервис; по ней же считается вектор полнотекстового поиска
+        jdbc.update("UPDATE aev.eav_entity e SET attributes_document = d.document "
+                + "FROM (SELECT a.entity_id, jsonb_agg(jsonb_build_object('name', n.name, 'value', a.value, "
+                + "'type', a.value_type) ORDER BY a.id) AS document "
+                + "FROM aev.eav_attribute_value a JOIN aev.eav_attribute_definition n ON n.id = a.attribute_id "
+                + "GROUP BY a.entity_id) d "
+                + "WHERE d.entity_id = e.id");
+        jdbc.update("INSERT INTO aev.eav_relation (id, relation_type, source_id, target_id) "
+                + "SELECT g, 'next', g, g + 1 FROM generate_series(1, ? - 1) g", entityCount);
+
+        // Новые строки из бенчмарков save не должны конфликтовать со сгенерированными id
+        jdbc.execute("SELECT setval('aev.eav_entity_seq', (SELECT max(id) FROM aev.eav_entity))");
+        jdbc.execute("SELECT setval('aev.eav_attribute_value_seq', (SELECT max(id) FROM aev.eav_attribute_value))");
+        jdbc.execute("SELECT setval('aev.eav_relation_seq', GREATEST(1, (SELECT max(id) FROM aev.eav_relation)))");
+        jdbc.execute("ANALYZE");
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    int getPort() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    void stop() {
+        context.close();
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package src.main.eav.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.mapper.EavEntityMapper;
+import src.main.eav.model.EavAttributeValue;
+import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavRelation;
+import src.main.eav.model.EavValueType;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг "широкой" сущности в DTO без участия базы: стоимость растёт с числом атрибутов и связей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EavEntityMapperBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int width;
+
+    private EavEntity entity;
+
+    @Setup
+    public void setUp() {
+        entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("wide");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+
+        for (int i = 0; i < width; i++) {
+            EavAttributeValue attribute = new EavAttributeValue();
+            attribute.setAttributeName("attr-" + i);
+            if (i % 2 == 0) {
+                attribute.setTypedValue(EavValueType.TEXT, "value-" + i);
+            } else {
+                attribute.setTypedValue(EavValueType.LONG, String.valueOf(i));
+            }
+            attribute.setEntity(entity);
+            entity.getAttributes().add(attribute);
+        }
+
+        // Связей на порядок меньше, чем атрибутов
+        for (int i = 0; i < Math.max(1, width / 10); i++) {
+            EavEntity target = new EavEntity();
+            target.setId(i + 2L);
+            target.setType("target-" + i);
+
+            EavRelation relation = new EavRelation();
+            relation.setRelationType("rel-" + i);
+            relation.setSource(entity);
+            relation.setTarget(target);
+            entity.getRelations().add(relation);
+        }
+    }
+
+    @Benchmark
+    public EavEntityDto entityToDto() {
+        return EavEntityMapper.entityToDto(entity);
+    }
+}
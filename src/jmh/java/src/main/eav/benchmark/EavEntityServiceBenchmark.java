@@ -0,0 +1,80 @@
+package src.main.eav.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import src.main.eav.controller.filter.EavAttributeFilter;
+import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.model.EavValueType;
+import src.main.eav.service.EavEntityService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сквозные сценарии сервисного слоя (транзакция, запросы, гидрация, маппинг) на сгенерированных данных.
+ * findPage читает первую страницу keyset-пагинации, findAll — выборку ~1% сущностей по диапазону "price".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EavEntityServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int attributes;
+
+    private BenchmarkEnvironment environment;
+    private EavEntityService service;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private EavEntityFilter rangeFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(attributes);
+        service = environment.getBean(EavEntityService.class);
+
+        rangeFilter = new EavEntityFilter();
+        rangeFilter.getAttributeFilters().add(new EavAttributeFilter()
+                .setName("price").setType(EavValueType.DOUBLE).setGte("100").setLt("110"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @Benchmark
+    public EavEntityDto save() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("saved-" + sequence.incrementAndGet());
+        for (int i = 0; i < BenchmarkEnvironment.ATTRIBUTES_PER_ENTITY; i++) {
+            EavAttributeValueDto attribute = new EavAttributeValueDto();
+            attribute.setAttributeName("attr-" + i);
+            attribute.setValue("value-" + i);
+            dto.getAttributes().add(attribute);
+        }
+        return service.save(dto);
+    }
+
+    @Benchmark
+    public List<EavEntityDto> findAllByRange() {
+        return service.findAll(rangeFilter);
+    }
+
+    @Benchmark
+    public EavEntityPageDto findFirstPage() {
+        return service.findPage(new EavEntityFilter().setLimit(100));
+    }
+}
@@ -0,0 +1,97 @@
+package src.main.eav.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import src.main.eav.controller.filter.EavAttributeFilter;
+import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dao.specification.EavEntitySpecification;
+import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavValueType;
+import src.main.eav.repository.EavEntityRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение запроса из EavEntityFilter (Criteria API + трансляция Hibernate) отдельно
+ * от его выполнения на сгенерированных данных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EavEntitySpecificationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int attributes;
+
+    private BenchmarkEnvironment environment;
+    private EavEntitySpecification specification;
+    private EavEntityRepository repository;
+    private EntityManager entityManager;
+
+    private EavEntityFilter searchFilter;
+    private EavEntityFilter rangeFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(attributes);
+        specification = environment.getBean(EavEntitySpecification.class);
+        repository = environment.getBean(EavEntityRepository.class);
+        entityManager = environment.getBean(EntityManagerFactory.class).createEntityManager();
+
+        // Подстрока в type: совпадают сущности bench-42, bench-142, bench-420 и т.д.
+        searchFilter = new EavEntityFilter().setSearch("42");
+        rangeFilter = new EavEntityFilter();
+        rangeFilter.getAttributeFilters().add(new EavAttributeFilter()
+                .setName("price").setType(EavValueType.DOUBLE).setGte("100").setLt("110"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        environment.stop();
+    }
+
+    @Benchmark
+    public TypedQuery<Long> buildSearchQuery() {
+        return buildQuery(searchFilter);
+    }
+
+    @Benchmark
+    public TypedQuery<Long> buildRangeQuery() {
+        return buildQuery(rangeFilter);
+    }
+
+    @Benchmark
+    public List<Long> executeSearchQuery() {
+        return repository.findIds(specification.getFilter(searchFilter), 0);
+    }
+
+    @Benchmark
+    public List<Long> executeRangeQuery() {
+        return repository.findIds(specification.getFilter(rangeFilter), 0);
+    }
+
+    private TypedQuery<Long> buildQuery(EavEntityFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<EavEntity> root = query.from(EavEntity.class);
+        query.select(root.get("id"))
+                .where(specification.getFilter(filter).toPredicate(root, query, cb));
+        return entityManager.createQuery(query);
+    }
+}
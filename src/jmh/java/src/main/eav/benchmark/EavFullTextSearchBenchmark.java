@@ -0,0 +1,84 @@
+package src.main.eav.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.service.EavEntityService;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница из 20 сущностей (только id и type) полнотекстовым поиском через сервисный слой:
+ * первая страница и следующая по курсору. Для сравнения — та же страница поиском подстроки.
+ * <p>
+ * Запросы по сгенерированным данным: "value-42" находит одну сущность, "42" — около 0,1% сущностей
+ * (значение price и тип bench-42), "bench" — все; в последнем случае релевантность считается
+ * для каждой строки, и время растёт с объёмом данных. У "value-42" следующей страницы нет,
+ * и fullTextNextPage повторяет первую.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EavFullTextSearchBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    public int attributes;
+
+    @Param({"value-42", "42", "bench"})
+    public String query;
+
+    private static final int PAGE_SIZE = 20;
+
+    private BenchmarkEnvironment environment;
+    private EavEntityService service;
+    private String secondPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(attributes);
+        service = environment.getBean(EavEntityService.class);
+        secondPageCursor = service.findPage(fullTextFilter(null)).getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @Benchmark
+    public EavEntityPageDto fullTextFirstPage() {
+        return service.findPage(fullTextFilter(null));
+    }
+
+    @Benchmark
+    public EavEntityPageDto fullTextNextPage() {
+        return service.findPage(fullTextFilter(secondPageCursor));
+    }
+
+    @Benchmark
+    public EavEntityPageDto substringFirstPage() {
+        return service.findPage(new EavEntityFilter()
+                .setSearch(query)
+                .setLimit(PAGE_SIZE)
+                .setInclude(Collections.emptyList()));
+    }
+
+    private EavEntityFilter fullTextFilter(String after) {
+        return new EavEntityFilter()
+                .setSearch(query)
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT)
+                .setAfter(after)
+                .setLimit(PAGE_SIZE)
+                .setInclude(Collections.emptyList());
+    }
+}
@@ -0,0 +1,120 @@
+package src.main.eav.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность GET /api/entities/{id} под нагрузкой {@code clients} одновременных клиентов:
+ * пул платформенных потоков Tomcat против виртуальных потоков (профиль virtual-threads).
+ * Один вызов бенчмарка — волна из clients параллельных запросов; основной результат — волны в секунду,
+ * вспомогательный счётчик requests — запросы в секунду. Кэш сущностей отключён (maximumSize=0),
+ * чтобы каждый запрос доходил до базы.
+ * <p>
+ * Кроме пропускной способности фиксируются пиковое число потоков JVM и занятая куча после волны
+ * (вспомогательные счётчики peakThreads и heapUsedMb). Аллокации — через {@code -prof gc}:
+ *     mvn -Pbenchmark,java21 -DskipTests verify -Djmh.args="EavHttpLoadBenchmark -prof gc"
+ * На Java 17 свойство spring.threads.virtual.enabled игнорируется, и оба варианта threads
+ * работают на платформенных потоках.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EavHttpLoadBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000", "2000"})
+    public int clients;
+
+    private static final int ATTRIBUTES = 100000;
+
+    private BenchmarkEnvironment environment;
+    private HttpClient client;
+    private String baseUrl;
+    private int entityCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String profile = "virtual".equals(threads) ? "virtual-threads" : "default";
+        environment = BenchmarkEnvironment.startWeb(ATTRIBUTES,
+                "--spring.profiles.active=" + profile,
+                "--eav.cache.entities.spec=maximumSize=0");
+        baseUrl = "http://localhost:" + environment.getPort() + "/api/entities/";
+        entityCount = ATTRIBUTES / BenchmarkEnvironment.ATTRIBUTES_PER_ENTITY;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ServerFootprint {
+        public long peakThreads;
+        public long heapUsedMb;
+
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threadBean.resetPeakThreadCount();
+        }
+
+        void record() {
+            // Виртуальные потоки не попадают в ThreadMXBean: видны только потоки-носители
+            peakThreads = threadBean.getPeakThreadCount();
+            heapUsedMb = memoryBean.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+        }
+    }
+
+    @Benchmark
+    public int concurrentReads(Requests counter, ServerFootprint footprint) {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < clients; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + (random.nextInt(entityCount) + 1)))
+                    .GET()
+                    .build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+        counter.requests += clients;
+        footprint.record();
+        return responses.length;
+    }
+}
@@ -0,0 +1,103 @@
+package src.main.eav.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.metrics.SqlStatementCounter;
+import src.main.eav.service.EavEntityService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешанная нагрузка на сервисный слой без кэша второго уровня Hibernate и с ним (eav.hibernate-cache.enabled).
+ * Операции выбираются случайно по горячему набору из {@code hotEntities} сущностей: findById и findByType
+ * поровну, доля записей (patch одного атрибута) — {@code writePercent} процентов.
+ * Кэш DTO отключён (expireAfterWrite=0s: запись сразу считается устаревшей), чтобы чтения доходили до Hibernate.
+ * <p>
+ * Кроме времени операции фиксируется число SQL-операторов (вспомогательный счётчик statements
+ * вместе с operations): их отношение — обращения к базе на операцию. Счётчик SqlStatementCounter
+ * привязан к потоку, поэтому бенчмарк однопоточный.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EavSecondLevelCacheBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hibernateCache;
+
+    @Param({"1", "10"})
+    public int writePercent;
+
+    @Param({"1000"})
+    public int hotEntities;
+
+    private static final int ATTRIBUTES = 100000;
+
+    private BenchmarkEnvironment environment;
+    private EavEntityService service;
+    private SqlStatementCounter counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = BenchmarkEnvironment.start(ATTRIBUTES,
+                "--eav.hibernate-cache.enabled=" + hibernateCache,
+                "--eav.cache.entities.spec=expireAfterWrite=0s");
+        service = environment.getBean(EavEntityService.class);
+        counter = environment.getBean(SqlStatementCounter.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long operations;
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            operations = 0;
+            statements = 0;
+        }
+    }
+
+    @Benchmark
+    public Object readHeavyMix(RoundTrips roundTrips) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Сгенерированные сущности имеют id 1..N и тип "bench-<id>"
+        long id = random.nextInt(hotEntities) + 1;
+        counter.reset();
+        Object result;
+        int dice = random.nextInt(100);
+        if (dice < writePercent) {
+            EavEntityPatchDto patch = new EavEntityPatchDto();
+            EavAttributeValueDto attribute = new EavAttributeValueDto();
+            attribute.setAttributeName("attr-1");
+            attribute.setValue("value-" + random.nextInt());
+            patch.getAttributes().add(attribute);
+            result = service.patch(id, patch);
+        } else if (dice % 2 == 0) {
+            result = service.findById(id);
+        } else {
+            result = service.findByType("bench-" + id);
+        }
+        roundTrips.operations++;
+        roundTrips.statements += counter.getCount();
+        return result;
+    }
+}
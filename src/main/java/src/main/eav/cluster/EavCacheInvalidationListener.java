@@ -0,0 +1,180 @@
+package src.main.eav.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.model.EavAttributeValue;
+import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavRelation;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слушает канал инвалидации (LISTEN) на отдельном соединении вне пула и сбрасывает у себя
+ * то, что изменили другие узлы: DTO из кэша entities и, если включён кэш второго уровня Hibernate,
+ * саму сущность и её коллекции. Сообщения несут только id сущностей, поэтому регионы атрибутов и связей,
+ * а также кэш запросов сбрасываются целиком.
+ * <p>
+ * Уведомления, пришедшие, пока соединения не было, теряются: после переподключения кэши сбрасываются
+ * полностью. Чтение, начатое до чужого коммита, может положить в кэш устаревший DTO уже после сброса —
+ * такая запись живёт не дольше срока из eav.cache.entities.spec.
+ */
+@Component
+@ConditionalOnProperty(name = "eav.cluster-cache.enabled", havingValue = "true")
+public class EavCacheInvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EavCacheInvalidationListener.class);
+
+    static final String ATTRIBUTES_ROLE = EavEntity.class.getName() + ".attributes";
+    static final String RELATIONS_ROLE = EavEntity.class.getName() + ".relations";
+
+    private final EavCacheInvalidationPublisher publisher;
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcConnectionDetails connectionDetails;
+    private final long pollTimeoutMs;
+    private final long reconnectDelayMs;
+    private final Counter received;
+    private final Counter reconnects;
+
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    @Autowired
+    public EavCacheInvalidationListener(EavCacheInvalidationPublisher publisher, CacheManager cacheManager,
+                                        EntityManagerFactory entityManagerFactory,
+                                        JdbcConnectionDetails connectionDetails, MeterRegistry registry,
+                                        @Value("${eav.cluster-cache.poll-timeout-ms:500}") long pollTimeoutMs,
+                                        @Value("${eav.cluster-cache.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        this.publisher = publisher;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.connectionDetails = connectionDetails;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.received = Counter.builder("eav.cluster-cache.invalidations")
+                .description("Сообщения об изменениях на других узлах")
+                .register(registry);
+        this.reconnects = Counter.builder("eav.cluster-cache.reconnects")
+                .description("Переподключения слушателя канала инвалидации")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("eav-cache-listener-"));
+        executor.execute(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdownNow();
+        if (!executor.awaitTermination(pollTimeoutMs + reconnectDelayMs, TimeUnit.MILLISECONDS)) {
+            log.warn("Слушатель канала {} не остановился", publisher.getChannel());
+        }
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                    connectionDetails.getUsername(), connectionDetails.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + publisher.getChannel());
+                }
+                if (reconnect) {
+                    // Пока соединения не было, уведомления не доставлялись
+                    evictAll();
+                    log.info("Слушатель канала {} переподключён, кэши сброшены", publisher.getChannel());
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Соединение слушателя канала {} потеряно, повтор через {} мс: {}",
+                        publisher.getChannel(), reconnectDelayMs, e.getMessage());
+                reconnects.increment();
+                reconnect = true;
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void handle(String payload) {
+        EavCacheInvalidationMessage message;
+        try {
+            message = EavCacheInvalidationMessage.parse(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Пропущено сообщение канала {}: {}", publisher.getChannel(), e.getMessage());
+            return;
+        }
+        // Свой кэш узел сбрасывает сам при записи
+        if (publisher.getNode().equals(message.getNode())) {
+            return;
+        }
+        received.increment();
+        if (message.isAll()) {
+            evictAll();
+            return;
+        }
+        Cache entities = cacheManager.getCache(CacheConfig.ENTITIES_CACHE);
+        org.hibernate.Cache secondLevel = secondLevelCache();
+        for (Long id : message.getIds()) {
+            entities.evict(id);
+            secondLevel.evictEntityData(EavEntity.class, id);
+            secondLevel.evictCollectionData(ATTRIBUTES_ROLE, id);
+            secondLevel.evictCollectionData(RELATIONS_ROLE, id);
+        }
+        // id изменённых атрибутов и связей в сообщении нет
+        secondLevel.evictEntityData(EavAttributeValue.class);
+        secondLevel.evictEntityData(EavRelation.class);
+        secondLevel.evictQueryRegions();
+    }
+
+    private void evictAll() {
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+        secondLevelCache().evictAllRegions();
+    }
+
+    // Без включённого кэша второго уровня методы сброса ничего не делают
+    private org.hibernate.Cache secondLevelCache() {
+        return entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class);
+    }
+}
@@ -0,0 +1,98 @@
+package src.main.eav.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Сообщение канала инвалидации: узел-отправитель и id изменённых сущностей либо признак «сбросить всё».
+ * Формат полезной нагрузки NOTIFY — {@code <узел>:<id>,<id>,...} или {@code <узел>:*}.
+ * Нагрузка NOTIFY ограничена 8000 байт, поэтому длинный список id делится на несколько сообщений.
+ */
+public final class EavCacheInvalidationMessage {
+
+    // С запасом до предела PostgreSQL в 8000 байт
+    static final int MAX_PAYLOAD_LENGTH = 7000;
+
+    private static final String ALL = "*";
+
+    private final String node;
+    private final boolean all;
+    private final List<Long> ids;
+
+    private EavCacheInvalidationMessage(String node, boolean all, List<Long> ids) {
+        this.node = node;
+        this.all = all;
+        this.ids = ids;
+    }
+
+    public static EavCacheInvalidationMessage of(String node, Collection<Long> ids) {
+        return new EavCacheInvalidationMessage(node, false, new ArrayList<>(ids));
+    }
+
+    public static EavCacheInvalidationMessage all(String node) {
+        return new EavCacheInvalidationMessage(node, true, Collections.emptyList());
+    }
+
+    /**
+     * @throws IllegalArgumentException если нагрузка не в формате канала
+     */
+    public static EavCacheInvalidationMessage parse(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Нет идентификатора узла: " + payload);
+        }
+        String node = payload.substring(0, separator);
+        String body = payload.substring(separator + 1);
+        if (ALL.equals(body)) {
+            return all(node);
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : body.split(",")) {
+            if (!id.isEmpty()) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return of(node, ids);
+    }
+
+    /**
+     * @return одна или несколько нагрузок NOTIFY, каждая не длиннее MAX_PAYLOAD_LENGTH
+     */
+    public List<String> toPayloads() {
+        String prefix = node + ":";
+        if (all) {
+            return Collections.singletonList(prefix + ALL);
+        }
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(prefix);
+        for (Long id : ids) {
+            String next = String.valueOf(id);
+            if (payload.length() > prefix.length() && payload.length() + 1 + next.length() > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(prefix);
+            }
+            if (payload.length() > prefix.length()) {
+                payload.append(',');
+            }
+            payload.append(next);
+        }
+        if (payload.length() > prefix.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,76 @@
+package src.main.eav.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Отправляет другим узлам id изменённых сущностей через pg_notify (при eav.cluster-cache.enabled=true).
+ * Вызывается внутри транзакции записи: PostgreSQL доставляет NOTIFY слушателям только после коммита
+ * и не доставляет при откате, поэтому узлы не сбрасывают кэш из-за незафиксированной или откаченной записи.
+ * Сообщения подписаны id узла, чтобы EavCacheInvalidationListener пропускал собственные:
+ * локальный кэш уже сброшен аннотациями @CacheEvict сервиса.
+ */
+@Component
+public class EavCacheInvalidationPublisher {
+
+    // Имя канала подставляется в LISTEN как идентификатор, а не как параметр
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String channel;
+    private final String node = UUID.randomUUID().toString();
+
+    @Autowired
+    public EavCacheInvalidationPublisher(JdbcTemplate jdbcTemplate,
+                                         @Value("${eav.cluster-cache.enabled:false}") boolean enabled,
+                                         @Value("${eav.cluster-cache.channel:eav_entity_changes}") String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Недопустимое имя канала eav.cluster-cache.channel: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.channel = channel;
+    }
+
+    /**
+     * Другие узлы сбросят закэшированные данные этих сущностей.
+     */
+    public void publish(Collection<Long> ids) {
+        if (enabled && !ids.isEmpty()) {
+            send(EavCacheInvalidationMessage.of(node, ids));
+        }
+    }
+
+    /**
+     * Другие узлы сбросят кэш сущностей целиком — когда затронутые сущности заранее неизвестны.
+     */
+    public void publishAll() {
+        if (enabled) {
+            send(EavCacheInvalidationMessage.all(node));
+        }
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    private void send(EavCacheInvalidationMessage message) {
+        for (String payload : message.toPayloads()) {
+            // pg_notify возвращает void: результат запроса не нужен
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (RowCallbackHandler) rs -> {
+            }, channel, payload);
+        }
+    }
+}
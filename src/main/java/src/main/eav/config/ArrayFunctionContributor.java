@@ -0,0 +1,28 @@
+package src.main.eav.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.function.array.ArrayContainsArgumentTypeResolver;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Регистрирует в Hibernate функцию array_has(массив, значение), которая рендерится как значение = any(массив).
+ * Список id передаётся одним параметром-массивом, поэтому число параметров запроса не зависит от его длины,
+ * а условие по первичному ключу использует индекс. Встроенная array_contains рендерится оператором @>,
+ * для которого индекс по значению не подходит. Тип параметра-массива выводится из типа значения.
+ * Подключается через META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ */
+public class ArrayFunctionContributor implements FunctionContributor {
+
+    public static final String ARRAY_HAS = "array_has";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().patternDescriptorBuilder(ARRAY_HAS, "(?2 = any(?1))")
+                .setExactArgumentCount(2)
+                .setArgumentTypeResolver(ArrayContainsArgumentTypeResolver.INSTANCE)
+                .setInvariantType(functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
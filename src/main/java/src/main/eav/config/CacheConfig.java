@@ -0,0 +1,30 @@
+package src.main.eav.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Кэш выполняется снаружи транзакции (порядок выше, чем у транзакционного advice):
+ * попадание в кэш не открывает транзакцию и не берёт соединение из пула,
+ * а инвалидация при записи происходит уже после коммита.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String ENTITIES_CACHE = "entities";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${eav.cache.entities.spec:maximumSize=10000,expireAfterWrite=10m}") String spec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ENTITIES_CACHE);
+        // recordStats нужен, чтобы счётчики попаданий/промахов/вытеснений попадали в метрики
+        cacheManager.setCaffeine(Caffeine.from(spec).recordStats());
+        return cacheManager;
+    }
+}
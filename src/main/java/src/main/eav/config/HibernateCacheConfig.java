@@ -0,0 +1,116 @@
+package src.main.eav.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Кэш второго уровня Hibernate (JCache поверх Caffeine), включается eav.hibernate-cache.enabled=true.
+ * Кэшируются сущности EavEntity, EavAttributeValue, EavRelation, коллекции attributes и relations
+ * и результаты findByType (кэш запросов). Без свойства регионы не создаются и аннотации @Cache ни на что не влияют.
+ * <p>
+ * В отличие от кэша DTO из CacheConfig, кэш второго уровня обслуживает и findById внутри записи,
+ * и догрузку ленивых коллекций при маппинге. Каждый регион ограничен по размеру; регион меток обновления
+ * таблиц (по ним кэш запросов узнаёт об устаревании) не ограничивается, иначе из кэша запросов
+ * можно получить устаревший результат. Кэш локален для узла: записи другого узла при eav.cluster-cache.enabled=true
+ * сбрасываются по его уведомлению через LISTEN/NOTIFY (EavCacheInvalidationListener), без этого свойства
+ * они видны только после истечения expire-after-write. Изменения в обход Hibernate и сервиса
+ * (прямой SQL без уведомления) тоже ждут истечения expire-after-write.
+ * <p>
+ * Статистика Hibernate включается вместе с кэшем: hibernate.second.level.cache.requests / puts
+ * и hibernate.cache.query.requests по регионам, плюс eav.hibernate.cache.size — текущий размер региона.
+ */
+@Configuration
+@ConditionalOnProperty(name = "eav.hibernate-cache.enabled", havingValue = "true")
+public class HibernateCacheConfig {
+
+    public static final String ENTITY_REGION = "eav.entity";
+    public static final String ATTRIBUTE_VALUE_REGION = "eav.attribute-value";
+    public static final String RELATION_REGION = "eav.relation";
+    public static final String ENTITY_ATTRIBUTES_REGION = "eav.entity.attributes";
+    public static final String ENTITY_RELATIONS_REGION = "eav.entity.relations";
+    public static final String BY_TYPE_QUERY_REGION = "eav.query.by-type";
+
+    // Регионы Hibernate по умолчанию: создаются при включённом кэше запросов
+    static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private final Duration expireAfterWrite;
+
+    public HibernateCacheConfig(@Value("${eav.hibernate-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    /**
+     * Отдельный экземпляр провайдера, а не Caching.getCachingProvider(): менеджер провайдера по умолчанию
+     * общий для JVM, и второй контекст приложения (например, в тестах) получил бы чужие регионы.
+     */
+    @Bean(destroyMethod = "close")
+    public CachingProvider hibernateCachingProvider() {
+        return new CaffeineCachingProvider();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(CachingProvider hibernateCachingProvider, MeterRegistry registry,
+                                              @Value("${eav.hibernate-cache.entities.maximum-size:10000}") long entities,
+                                              @Value("${eav.hibernate-cache.attributes.maximum-size:100000}") long attributes,
+                                              @Value("${eav.hibernate-cache.relations.maximum-size:50000}") long relations,
+                                              @Value("${eav.hibernate-cache.collections.maximum-size:20000}") long collections,
+                                              @Value("${eav.hibernate-cache.queries.maximum-size:1000}") long queries) {
+        CacheManager cacheManager = hibernateCachingProvider.getCacheManager();
+        createRegion(cacheManager, registry, ENTITY_REGION, OptionalLong.of(entities), true);
+        createRegion(cacheManager, registry, ATTRIBUTE_VALUE_REGION, OptionalLong.of(attributes), true);
+        createRegion(cacheManager, registry, RELATION_REGION, OptionalLong.of(relations), true);
+        createRegion(cacheManager, registry, ENTITY_ATTRIBUTES_REGION, OptionalLong.of(collections), true);
+        createRegion(cacheManager, registry, ENTITY_RELATIONS_REGION, OptionalLong.of(collections), true);
+        createRegion(cacheManager, registry, BY_TYPE_QUERY_REGION, OptionalLong.of(queries), true);
+        createRegion(cacheManager, registry, DEFAULT_QUERY_REGION, OptionalLong.of(queries), true);
+        createRegion(cacheManager, registry, UPDATE_TIMESTAMPS_REGION, OptionalLong.empty(), false);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Все регионы заданы выше; опечатка в имени региона не должна незаметно создать неограниченный кэш
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    private void createRegion(CacheManager cacheManager, MeterRegistry registry, String region,
+                              OptionalLong maximumSize, boolean expiring) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize);
+        if (expiring) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        configuration.setStatisticsEnabled(true);
+        Cache<Object, Object> cache = cacheManager.createCache(region, configuration);
+
+        com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        Gauge.builder("eav.hibernate.cache.size", caffeine, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                .description("Число записей в регионе кэша второго уровня Hibernate")
+                .tag("region", region)
+                .register(registry);
+    }
+}
@@ -0,0 +1,49 @@
+package src.main.eav.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import src.main.eav.metrics.SqlStatementCounter;
+import src.main.eav.metrics.SqlStatementMetricsFilter;
+
+/**
+ * Метрики горячих путей:
+ * - eav.service / eav.dao — таймеры методов сервиса и DAO (@Timed на классах, теги class и method);
+ * - eav.dao.rows — число сущностей, возвращённых запросами DAO;
+ * - eav.dto.mapping — время маппинга сущности в DTO (включая догрузку ленивых коллекций);
+ * - eav.sql.statements — число SQL-операторов за HTTP-запрос.
+ * Гистограммы для перцентилей включаются в application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter counter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(SqlStatementCounter counter,
+                                                                                      MeterRegistry registry) {
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementMetricsFilter(counter, registry));
+        // Снаружи остальных фильтров, чтобы учесть все операторы запроса
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
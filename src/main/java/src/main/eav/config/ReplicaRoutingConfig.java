@@ -0,0 +1,110 @@
+package src.main.eav.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import src.main.eav.replica.ReadYourWritesFilter;
+import src.main.eav.replica.Replica;
+import src.main.eav.replica.ReplicaPool;
+import src.main.eav.replica.ReplicaReadJpaDialect;
+import src.main.eav.replica.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение с реплик PostgreSQL, включается eav.replica.enabled=true с непустым eav.replica.urls.
+ * <p>
+ * Источник данных приложения оборачивается в LazyConnectionDataSourceProxy: транзакции с readOnly = true
+ * (все чтения EavEntityService) получают соединение с реплики, остальные — с основной базы.
+ * Отдельный бин DataSource не объявляется, чтобы автоконфигурации JPA, Flyway и JdbcTemplate
+ * продолжали работать с единственным источником.
+ * <p>
+ * Реплики выбираются по кругу среди доступных по результатам ReplicaHealthChecker; если доступных нет,
+ * чтение идёт на основную базу. Клиент, только что выполнивший запись, в течение
+ * eav.replica.sticky-window-ms читает с основной базы (ReadYourWritesFilter).
+ * <p>
+ * Общие кэши заполняются только данными основной базы: findById читает с неё, а транзакции,
+ * которые могут читать с реплики, не пополняют кэш второго уровня (ReplicaReadJpaDialect).
+ */
+@Configuration
+@ConditionalOnProperty(name = "eav.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public ReplicaPool replicaPool(@Value("${eav.replica.urls:}") String[] urls,
+                                   @Value("${eav.replica.username:${spring.datasource.username:}}") String username,
+                                   @Value("${eav.replica.password:${spring.datasource.password:}}") String password,
+                                   @Value("${eav.replica.maximum-pool-size:10}") int maximumPoolSize,
+                                   @Value("${eav.replica.connection-timeout-ms:2000}") long connectionTimeoutMs) {
+        if (urls.length == 0) {
+            throw new IllegalStateException("eav.replica.enabled=true, но eav.replica.urls не задан");
+        }
+        List<Replica> replicas = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("eav-replica-" + i);
+            dataSource.setJdbcUrl(urls[i].trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setConnectionTimeout(connectionTimeoutMs);
+            dataSource.setReadOnly(true);
+            // Недоступная при старте реплика не должна мешать запуску: её исключит проверка состояния
+            dataSource.setInitializationFailTimeout(-1);
+            replicas.add(new Replica(dataSource));
+        }
+        return new ReplicaPool(replicas);
+    }
+
+    /**
+     * Статический, чтобы постпроцессор создавался до остальных бинов конфигурации.
+     * Кроме источника данных, подменяет JpaDialect фабрики EntityManager на ReplicaReadJpaDialect:
+     * до инициализации фабрики, пока диалект не взят из JpaVendorAdapter.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingDataSourcePostProcessor(ObjectProvider<ReplicaPool> replicaPool) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+                    entityManagerFactory.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource primary)
+                        || bean instanceof LazyConnectionDataSourceProxy) {
+                    return bean;
+                }
+                LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+                proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicaPool.getObject()));
+                return proxy;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${eav.replica.sticky-cookie:EAV_PRIMARY_UNTIL}") String cookieName,
+            @Value("${eav.replica.sticky-window-ms:0}") long windowMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(cookieName, windowMs, Clock.systemUTC()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+}
@@ -0,0 +1,35 @@
+package src.main.eav.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import src.main.eav.metrics.SqlStatementBudgetInterceptor;
+import src.main.eav.metrics.SqlStatementCounter;
+
+/**
+ * Для эндпоинтов с @SqlStatementBudget число SQL-операторов за запрос сверяется с бюджетом.
+ * eav.sql.budget.mode: LOG — предупреждение в лог после запроса, FAIL — запрос прерывается
+ * на первом операторе сверх бюджета (удобно в тестах).
+ * Без счётчика из MetricsConfig (например, в срезе @WebMvcTest) проверка не подключается.
+ */
+@Configuration
+public class SqlStatementBudgetConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<SqlStatementCounter> counter;
+
+    private final SqlStatementBudgetInterceptor.Mode mode;
+
+    public SqlStatementBudgetConfig(ObjectProvider<SqlStatementCounter> counter,
+                                    @Value("${eav.sql.budget.mode:LOG}") SqlStatementBudgetInterceptor.Mode mode) {
+        this.counter = counter;
+        this.mode = mode;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        counter.ifAvailable(sqlStatementCounter ->
+                registry.addInterceptor(new SqlStatementBudgetInterceptor(sqlStatementCounter, mode)));
+    }
+}
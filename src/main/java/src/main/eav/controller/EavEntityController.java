@@ -1,46 +1,192 @@
 package src.main.eav.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dto.EavBulkChunkResultDto;
 import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavIncomingRelationDto;
+import src.main.eav.dto.EavIncomingRelationPageDto;
+import src.main.eav.dto.EavIngestTicketDto;
+import src.main.eav.error.PreconditionFailedException;
+import src.main.eav.error.ResourceNotFoundException;
+import src.main.eav.ingest.EavIngestQueue;
+import src.main.eav.metrics.SqlStatementBudget;
 import src.main.eav.service.EavEntityService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/entities")
 public class EavEntityController {
 
+    // Заголовок с курсором следующей страницы при keyset-пагинации
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // RFC 7240: клиент согласен получить 202 и забрать результат позже
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    public static final String RESPOND_ASYNC = "respond-async";
+
     private final EavEntityService eavEntityService;
 
+    private final ObjectMapper objectMapper;
+
+    private final int bulkChunkSize;
+
+    // Бин есть только при eav.ingest.enabled=true
+    private final ObjectProvider<EavIngestQueue> ingestQueue;
+
     @Autowired
-    public EavEntityController(EavEntityService eavEntityService) {
+    public EavEntityController(EavEntityService eavEntityService, ObjectMapper objectMapper,
+                               @Value("${eav.bulk.chunk-size:500}") int bulkChunkSize,
+                               ObjectProvider<EavIngestQueue> ingestQueue) {
         this.eavEntityService = eavEntityService;
+        this.objectMapper = objectMapper;
+        this.bulkChunkSize = bulkChunkSize;
+        this.ingestQueue = ingestQueue;
     }
 
+    /**
+     * С заголовком Prefer: respond-async и включённой очередью записи сущность ставится в очередь:
+     * ответ 202 с заявкой, статус которой доступен по адресу из Location. Без заголовка или без
+     * очереди сущность сохраняется сразу.
+     */
     @PostMapping
-    public ResponseEntity<EavEntityDto> createEntity(@RequestBody EavEntityDto dto) {
+    public ResponseEntity<?> createEntity(@RequestBody EavEntityDto dto,
+                                         @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        EavIngestQueue queue = ingestQueue.getIfAvailable();
+        if (queue != null && prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            EavIngestTicketDto ticket = queue.submit(dto);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/entities/tickets/" + ticket.getTicket()))
+                    .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                    .body(ticket);
+        }
         EavEntityDto createdEntity = eavEntityService.save(dto);
         return ResponseEntity.ok(createdEntity);
     }
 
+    // Статус заявки из очереди записи; заявки хранятся ограниченное время (eav.ingest.tickets.spec)
+    @GetMapping("/tickets/{ticket}")
+    public ResponseEntity<EavIngestTicketDto> getTicket(@PathVariable String ticket) {
+        EavIngestQueue queue = ingestQueue.getIfAvailable();
+        if (queue == null) {
+            throw new ResourceNotFoundException("Очередь записи отключена");
+        }
+        EavIngestTicketDto status = queue.findTicket(ticket)
+                .orElseThrow(() -> new ResourceNotFoundException("Заявка не найдена: " + ticket));
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Массовая загрузка: принимает JSON-массив или NDJSON-поток сущностей и сохраняет их
+     * порциями по eav.bulk.chunk-size, каждая порция — в своей транзакции.
+     * Тело читается потоково, в памяти держится только текущая порция.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<List<EavBulkChunkResultDto>> createEntities(InputStream body) throws IOException {
+        List<EavBulkChunkResultDto> results = new ArrayList<>();
+        // readValues разворачивает JSON-массив верхнего уровня и так же читает значения, разделённые переводом строки
+        try (MappingIterator<EavEntityDto> iterator = objectMapper.readerFor(EavEntityDto.class).readValues(body)) {
+            List<EavEntityDto> chunk = new ArrayList<>(bulkChunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == bulkChunkSize) {
+                    results.add(saveChunk(results.size(), chunk));
+                    chunk = new ArrayList<>(bulkChunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                results.add(saveChunk(results.size(), chunk));
+            }
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    private EavBulkChunkResultDto saveChunk(int index, List<EavEntityDto> chunk) {
+        EavBulkChunkResultDto result = new EavBulkChunkResultDto();
+        result.setChunk(index);
+        result.setReceived(chunk.size());
+        try {
+            result.setIds(eavEntityService.saveAll(chunk));
+        } catch (RuntimeException e) {
+            // Ошибка одной порции не прерывает загрузку остальных
+            result.setError(e.getMessage());
+        }
+        return result;
+    }
+
+    // Сущность, её атрибуты и связи
+    @SqlStatementBudget(3)
     @GetMapping("/{id}")
     public ResponseEntity<EavEntityDto> getEntity(@PathVariable Long id) {
         EavEntityDto entityDto = eavEntityService.findById(id);
-        return ResponseEntity.ok(entityDto);
+        return withETag(entityDto);
     }
 
+    // Связи, ведущие в сущность; следующая страница — after из заголовка X-Next-Cursor
+    @SqlStatementBudget(2)
+    @GetMapping("/{id}/incoming")
+    public ResponseEntity<List<EavIncomingRelationDto>> getIncomingRelations(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        EavIncomingRelationPageDto page = eavEntityService.findIncoming(id, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    // Подграф связей от сущности: один рекурсивный запрос вместо запроса на каждый шаг обхода
+    @SqlStatementBudget(1)
+    @GetMapping("/{id}/graph")
+    public ResponseEntity<EavGraphDto> getGraph(@PathVariable Long id,
+                                                @RequestParam(required = false) Integer depth,
+                                                @RequestParam(required = false) String relationType) {
+        return ResponseEntity.ok(eavEntityService.findGraph(id, depth, relationType));
+    }
 
+    // Выборка сущностей (или их id) и по одному запросу на атрибуты и связи всей выборки
+    @SqlStatementBudget(3)
     @GetMapping
     public ResponseEntity<List<EavEntityDto>> getEntities(
             @RequestParam(required = false) String type,
-            EavEntityFilter filter) {
+            EavEntityFilter filter,
+            @RequestParam MultiValueMap<String, String> parameters) {
+        // Условия вида attr.color=red не укладываются в свойства фильтра и разбираются отдельно
+        filter.addAttributeParameters(parameters);
         List<EavEntityDto> dtos;
         if (type != null && !type.isEmpty()) {
             dtos = eavEntityService.findByType(type);
-        } else if (filter.getSearch() != null && !filter.getSearch().trim().isEmpty()) {
+        } else if (filter.isPaged() || filter.isFullText()) {
+            EavEntityPageDto page = eavEntityService.findPage(filter);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } else if (filter.hasCriteria() || filter.isProjected()) {
             dtos = eavEntityService.findAll(filter);
         } else {
             dtos = eavEntityService.findAll();
@@ -48,11 +194,46 @@ public class EavEntityController {
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * Потоковая выгрузка сущностей в формате NDJSON: по одной сущности на строку.
+     * Строки пишутся в ответ по мере чтения из БД, без накопления всей выборки в памяти.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportEntities(@RequestParam(required = false) String type) {
+        String exportType = type != null && !type.isEmpty() ? type : null;
+        StreamingResponseBody body = outputStream -> eavEntityService.exportByType(exportType, dto -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(dto));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
+    /**
+     * С заголовком If-Match изменение применяется, только если версия сущности совпадает с ETag (иначе 412).
+     * Без него изменение применяется к текущей версии; при конфликте с параллельной записью сервис
+     * повторяет его сам, а 409 возвращается, если попытки исчерпаны.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<EavEntityDto> updateEntity(@PathVariable Long id, @RequestBody EavEntityDto dto) {
+    public ResponseEntity<EavEntityDto> updateEntity(@PathVariable Long id, @RequestBody EavEntityDto dto,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Версия в теле (например, из ответа GET) не считается условием: условие задаётся только заголовком
+        dto.setVersion(expectedVersion(ifMatch));
         EavEntityDto updatedEntity = eavEntityService.update(id, dto);
-        return ResponseEntity.ok(updatedEntity);
+        return withETag(updatedEntity);
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<EavEntityDto> patchEntity(@PathVariable Long id, @RequestBody EavEntityPatchDto patch,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        patch.setVersion(expectedVersion(ifMatch));
+        EavEntityDto patchedEntity = eavEntityService.patch(id, patch);
+        return withETag(patchedEntity);
     }
 
     @DeleteMapping("/{id}")
@@ -60,4 +241,30 @@ public class EavEntityController {
         eavEntityService.deleteEntity(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<EavEntityDto> withETag(EavEntityDto dto) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (dto.getVersion() != null) {
+            response.eTag(String.valueOf(dto.getVersion()));
+        }
+        return response.body(dto);
+    }
+
+    // If-Match: "3" или W/"3"; * означает любую существующую версию
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            // Такого ETag сервер не выдавал, значит он не совпадает ни с одной версией
+            throw new PreconditionFailedException("If-Match не совпадает с версией сущности: " + ifMatch);
+        }
+    }
+}
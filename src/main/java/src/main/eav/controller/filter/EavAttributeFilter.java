@@ -0,0 +1,102 @@
+package src.main.eav.controller.filter;
+
+import src.main.eav.model.EavValueType;
+
+import java.util.List;
+
+/**
+ * Условие на значение одного атрибута. Значения сравниваются в колонке, соответствующей type,
+ * поэтому числа и даты сравниваются как числа и даты, а не как строки.
+ * Все заданные условия объединяются через AND; in — совпадение с любым из перечисленных значений.
+ */
+public class EavAttributeFilter {
+
+    private String name;
+
+    // Не задан — значения сравниваются по канонической строковой записи (колонка value) с атрибутами любого типа
+    private EavValueType type;
+
+    private String eq;
+
+    private String gt;
+
+    private String gte;
+
+    private String lt;
+
+    private String lte;
+
+    private List<String> in;
+
+    public String getName() {
+        return name;
+    }
+
+    public EavAttributeFilter setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public EavValueType getType() {
+        return type;
+    }
+
+    public EavAttributeFilter setType(EavValueType type) {
+        this.type = type;
+        return this;
+    }
+
+    public String getEq() {
+        return eq;
+    }
+
+    public EavAttributeFilter setEq(String eq) {
+        this.eq = eq;
+        return this;
+    }
+
+    public String getGt() {
+        return gt;
+    }
+
+    public EavAttributeFilter setGt(String gt) {
+        this.gt = gt;
+        return this;
+    }
+
+    public String getGte() {
+        return gte;
+    }
+
+    public EavAttributeFilter setGte(String gte) {
+        this.gte = gte;
+        return this;
+    }
+
+    public String getLt() {
+        return lt;
+    }
+
+    public EavAttributeFilter setLt(String lt) {
+        this.lt = lt;
+        return this;
+    }
+
+    public String getLte() {
+        return lte;
+    }
+
+    public EavAttributeFilter setLte(String lte) {
+        this.lte = lte;
+        return this;
+    }
+
+    public List<String> getIn() {
+        return in;
+    }
+
+    public EavAttributeFilter setIn(List<String> in) {
+        this.in = in;
+        return this;
+    }
+}
@@ -0,0 +1,58 @@
+package src.main.eav.controller.filter;
+
+import src.main.eav.error.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в выдаче для keyset-пагинации: пара (type, id) последней отданной сущности.
+ * Клиенту передаётся в непрозрачном виде (Base64URL), чтобы формат можно было менять.
+ */
+public class EavEntityCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private final String type;
+
+    private final Long id;
+
+    public EavEntityCursor(String type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        // id идёт первым: type может содержать разделитель
+        String raw = id + String.valueOf(SEPARATOR) + type;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента. Пустое значение означает начало выдачи.
+     */
+    public static EavEntityCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new BadRequestException("Некорректный курсор: " + cursor);
+            }
+            Long id = Long.valueOf(raw.substring(0, separator));
+            return new EavEntityCursor(raw.substring(separator + 1), id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректный курсор: " + cursor);
+        }
+    }
+}
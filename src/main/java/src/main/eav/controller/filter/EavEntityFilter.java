@@ -1,17 +1,55 @@
 package src.main.eav.controller.filter;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class EavEntityFilter {
 
+    // Префикс параметров-условий на значения атрибутов: attr.color=red&attr.size=L
+    public static final String ATTRIBUTE_PARAMETER_PREFIX = "attr.";
+
     private String search;
 
+    // SUBSTRING — подстрока в type и именах атрибутов; FULL_TEXT — полнотекстовый запрос
+    // (синтаксис websearch_to_tsquery) по type, именам и значениям атрибутов с ранжированием
+    private SearchMode searchMode = SearchMode.SUBSTRING;
+
     private SortOrder sortOrder = SortOrder.ASC;
 
+    // Условия на типизированные значения атрибутов,
+    // например attributeFilters[0].name=price&attributeFilters[0].type=DOUBLE&attributeFilters[0].gt=100
+    private List<EavAttributeFilter> attributeFilters = new ArrayList<>();
+
+    // Как объединяются условия на атрибуты: ALL — все (AND), ANY — хотя бы одно (OR)
+    private Match match = Match.ALL;
+
+    // Непрозрачный курсор из заголовка ответа предыдущей страницы
+    private String after;
+
+    // Размер страницы; если не задан вместе с after, пагинация не применяется
+    private Integer limit;
+
+    // Какие коллекции вернуть: include=attributes,relations; пустое значение — только id и type,
+    // отсутствие параметра — все коллекции
+    private List<String> include;
+
+    public enum SearchMode {
+        SUBSTRING,
+        FULL_TEXT;
+    }
+
     public enum SortOrder {
         ASC,
         DESC;
     }
 
+    public enum Match {
+        ALL,
+        ANY;
+    }
+
     public String getSearch() {
         return search;
     }
@@ -21,6 +59,15 @@ public class EavEntityFilter {
         return this;
     }
 
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public EavEntityFilter setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+        return this;
+    }
+
     public SortOrder getSortOrder() {
         return sortOrder;
     }
@@ -29,4 +76,96 @@ public class EavEntityFilter {
         this.sortOrder = sortOrder;
         return this;
     }
+
+    public List<EavAttributeFilter> getAttributeFilters() {
+        return attributeFilters;
+    }
+
+    public EavEntityFilter setAttributeFilters(List<EavAttributeFilter> attributeFilters) {
+        this.attributeFilters = attributeFilters;
+        return this;
+    }
+
+    public Match getMatch() {
+        return match;
+    }
+
+    public EavEntityFilter setMatch(Match match) {
+        this.match = match;
+        return this;
+    }
+
+    /**
+     * Добавляет условия из параметров вида attr.&lt;имя&gt;=&lt;значение&gt;: значение сравнивается
+     * с текстовой записью атрибута. Повторение параметра (attr.color=red&amp;attr.color=blue)
+     * означает "любое из значений". Остальные параметры пропускаются.
+     */
+    public EavEntityFilter addAttributeParameters(Map<String, List<String>> parameters) {
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            String key = parameter.getKey();
+            if (!key.startsWith(ATTRIBUTE_PARAMETER_PREFIX) || key.length() == ATTRIBUTE_PARAMETER_PREFIX.length()) {
+                continue;
+            }
+            String name = key.substring(ATTRIBUTE_PARAMETER_PREFIX.length());
+            List<String> values = parameter.getValue();
+            EavAttributeFilter attributeFilter = new EavAttributeFilter().setName(name);
+            if (values.size() == 1) {
+                attributeFilter.setEq(values.get(0));
+            } else {
+                attributeFilter.setIn(new ArrayList<>(values));
+            }
+            attributeFilters.add(attributeFilter);
+        }
+        return this;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public EavEntityFilter setAfter(String after) {
+        this.after = after;
+        return this;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public EavEntityFilter setLimit(Integer limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public List<String> getInclude() {
+        return include;
+    }
+
+    public EavEntityFilter setInclude(List<String> include) {
+        this.include = include;
+        return this;
+    }
+
+    public Set<EavEntityInclude> getIncludes() {
+        return EavEntityInclude.parse(include);
+    }
+
+    public boolean hasCriteria() {
+        return (search != null && !search.trim().isEmpty())
+                || (attributeFilters != null && !attributeFilters.isEmpty());
+    }
+
+    // Полнотекстовый поиск всегда отдаётся страницами в порядке релевантности
+    public boolean isFullText() {
+        return searchMode == SearchMode.FULL_TEXT;
+    }
+
+    public boolean isPaged() {
+        return limit != null || (after != null && !after.isBlank());
+    }
+
+    // Явно ограничен набор возвращаемых коллекций
+    public boolean isProjected() {
+        return include != null;
+    }
 }
\ No newline at end of file
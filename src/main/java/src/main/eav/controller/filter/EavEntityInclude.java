@@ -0,0 +1,55 @@
+package src.main.eav.controller.filter;
+
+import src.main.eav.error.BadRequestException;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Коллекции сущности, которые можно запросить параметром include в списке сущностей.
+ * id и type возвращаются всегда.
+ */
+public enum EavEntityInclude {
+    ATTRIBUTES("attributes"),
+    RELATIONS("relations");
+
+    // Имя значения в параметре запроса
+    private final String parameterName;
+
+    EavEntityInclude(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * Разбирает значения параметра include. null означает, что параметр не передан,
+     * и сохраняет прежнее поведение — возвращаются все коллекции. Пустые значения пропускаются.
+     */
+    public static Set<EavEntityInclude> parse(Collection<String> values) {
+        if (values == null) {
+            return EnumSet.allOf(EavEntityInclude.class);
+        }
+        Set<EavEntityInclude> includes = EnumSet.noneOf(EavEntityInclude.class);
+        for (String value : values) {
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            includes.add(fromParameterName(value.trim()));
+        }
+        return includes;
+    }
+
+    private static EavEntityInclude fromParameterName(String value) {
+        for (EavEntityInclude include : values()) {
+            if (include.parameterName.equalsIgnoreCase(value)) {
+                return include;
+            }
+        }
+        throw new BadRequestException("Неизвестное значение include: " + value
+                + ", допустимы: attributes, relations");
+    }
+}
@@ -0,0 +1,62 @@
+package src.main.eav.controller.filter;
+
+import src.main.eav.error.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в выдаче полнотекстового поиска: релевантность и id последней отданной сущности.
+ * Релевантность — значение real из ts_rank; Float.toString сохраняет его точно, поэтому
+ * условие "после курсора" на следующей странице сравнивает те же числа, что и сортировка.
+ */
+public class EavEntitySearchCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private final float rank;
+
+    private final Long id;
+
+    public EavEntitySearchCursor(float rank, Long id) {
+        this.rank = rank;
+        this.id = id;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + rank;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента. Пустое значение означает начало выдачи.
+     */
+    public static EavEntitySearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new BadRequestException("Некорректный курсор: " + cursor);
+            }
+            Long id = Long.valueOf(raw.substring(0, separator));
+            float rank = Float.parseFloat(raw.substring(separator + 1));
+            if (!Float.isFinite(rank)) {
+                throw new BadRequestException("Некорректный курсор: " + cursor);
+            }
+            return new EavEntitySearchCursor(rank, id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректный курсор: " + cursor);
+        }
+    }
+}
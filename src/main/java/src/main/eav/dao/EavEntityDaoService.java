@@ -1,26 +1,59 @@
 package src.main.eav.dao;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.controller.filter.EavEntityInclude;
 import src.main.eav.model.EavEntity;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+import src.main.eav.repository.projection.EavIncomingRelation;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface EavEntityDaoService {
 
     Optional<EavEntity> findById(Long id);
 
+    List<EavEntity> findAllById(Collection<Long> ids);
+
+    List<EavEntity> findAllById(List<Long> ids, Set<EavEntityInclude> includes);
+
     List<EavEntity> findByType(String type);
 
     List<EavEntity> findAll();
 
     List<EavEntity> findAll(EavEntityFilter filter);
 
+    Slice<EavEntity> findPage(EavEntityFilter filter);
+
+    List<EavEntitySummary> findSummaries(EavEntityFilter filter);
+
+    Slice<EavEntitySummary> findSummaryPage(EavEntityFilter filter);
+
+    Slice<EavEntitySearchHit> findSearchPage(EavEntityFilter filter);
+
+    boolean existsById(Long id);
+
+    Slice<EavIncomingRelation> findIncoming(Long targetId, Long afterId, int limit);
+
+    List<EavGraphRow> findGraph(Long rootId, int maxDepth, String relationType);
+
+    void forEachByType(String type, Consumer<EavEntity> action);
+
     EavEntity save(EavEntity entity);
 
+    List<EavEntity> saveAll(List<EavEntity> entities);
+
     EavEntity edit(EavEntity entity);
 
     void deleteEntity(Long id);
+
+    Long findMaxId();
+
+    int rebuildAttributesDocuments(long fromId, long toId);
 }
\ No newline at end of file
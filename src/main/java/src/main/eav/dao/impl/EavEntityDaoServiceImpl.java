@@ -1,26 +1,70 @@
 package src.main.eav.dao.impl;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import src.main.eav.dao.EavEntityDaoService;
+import src.main.eav.dictionary.EavAttributeDictionary;
+import src.main.eav.error.BadRequestException;
+import src.main.eav.model.EavAttributeValue;
 import src.main.eav.model.EavEntity;
 import src.main.eav.repository.EavEntityRepository;
+import src.main.eav.repository.EavRelationRepository;
 import src.main.eav.dao.specification.EavEntitySpecification;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.controller.filter.EavEntityInclude;
+import src.main.eav.controller.filter.EavEntitySearchCursor;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+import src.main.eav.repository.projection.EavIncomingRelation;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed("eav.dao")
 public class EavEntityDaoServiceImpl implements EavEntityDaoService {
 
+    static final int EXPORT_CHUNK_SIZE = 500;
+
     private final EavEntityRepository repository;
+    private final EavRelationRepository relationRepository;
     private final EavEntitySpecification specification;
+    private final EavAttributeDictionary attributeDictionary;
+    private final MeterRegistry registry;
+    // Атрибуты читаются из jsonb-копии в строке сущности, коллекция attributes не загружается
+    private final boolean documentEnabled;
 
     @Autowired
-    public EavEntityDaoServiceImpl(EavEntityRepository repository, EavEntitySpecification specification) {
+    public EavEntityDaoServiceImpl(EavEntityRepository repository, EavRelationRepository relationRepository,
+                                   EavEntitySpecification specification, EavAttributeDictionary attributeDictionary,
+                                   MeterRegistry registry,
+                                   @Value("${eav.document.enabled:false}") boolean documentEnabled) {
         this.repository = repository;
+        this.relationRepository = relationRepository;
         this.specification = specification;
+        this.attributeDictionary = attributeDictionary;
+        this.registry = registry;
+        this.documentEnabled = documentEnabled;
     }
 
     @Override
@@ -28,35 +72,219 @@ public class EavEntityDaoServiceImpl implements EavEntityDaoService {
         return repository.findById(id);
     }
 
+    @Override
+    public List<EavEntity> findAllById(Collection<Long> ids) {
+        return recordRows("findAllById", repository.findAllById(ids));
+    }
+
+    @Override
+    public List<EavEntity> findAllById(List<Long> ids, Set<EavEntityInclude> includes) {
+        return recordRows("findAllByIdWithIncludes", hydrate(ids, includes));
+    }
+
     @Override
     public List<EavEntity> findByType(String type) {
-        return repository.findAll((root, query, cb) ->
-                cb.equal(root.get("type"), type)
-        );
+        return recordRows("findByType", repository.findAllByType(type));
     }
 
     @Override
     public List<EavEntity> findAll() {
-        return repository.findAll();
+        return recordRows("findAll", repository.findAll());
     }
 
 
     public List<EavEntity> findAll(EavEntityFilter filter) {
-        return repository.findAll(specification.getFilter(filter));
+        return recordRows("findAllByFilter",
+                hydrate(repository.findIds(specification.getFilter(filter), 0), filter.getIncludes()));
+    }
+
+    @Override
+    public List<EavEntitySummary> findSummaries(EavEntityFilter filter) {
+        List<EavEntitySummary> summaries = repository.findSummaries(specification.getFilter(filter), 0);
+        recordRows("findSummaries", summaries.size());
+        return summaries;
+    }
+
+    @Override
+    public Slice<EavEntity> findPage(EavEntityFilter filter) {
+        int limit = filter.getLimit();
+        // Запрашиваем на одну запись больше, чтобы узнать о следующей странице без COUNT
+        List<Long> ids = repository.findIds(specification.getPage(filter), limit + 1);
+        boolean hasNext = ids.size() > limit;
+        List<EavEntity> content = recordRows("findPage",
+                hydrate(hasNext ? ids.subList(0, limit) : ids, filter.getIncludes()));
+        return new SliceImpl<>(content, PageRequest.ofSize(limit), hasNext);
+    }
+
+    @Override
+    public Slice<EavEntitySummary> findSummaryPage(EavEntityFilter filter) {
+        int limit = filter.getLimit();
+        List<EavEntitySummary> summaries = repository.findSummaries(specification.getPage(filter), limit + 1);
+        boolean hasNext = summaries.size() > limit;
+        List<EavEntitySummary> content = hasNext ? summaries.subList(0, limit) : summaries;
+        recordRows("findSummaryPage", content.size());
+        return new SliceImpl<>(content, PageRequest.ofSize(limit), hasNext);
+    }
+
+    /**
+     * Страница полнотекстового поиска в порядке релевантности. Условия на атрибуты с ним не сочетаются:
+     * ранжированная выборка идёт одним запросом по GIN-индексу, без EXISTS-подзапросов спецификации.
+     */
+    @Override
+    public Slice<EavEntitySearchHit> findSearchPage(EavEntityFilter filter) {
+        if (filter.getSearch() == null || filter.getSearch().isBlank()) {
+            throw new BadRequestException("Не задан запрос полнотекстового поиска");
+        }
+        if (filter.getAttributeFilters() != null && !filter.getAttributeFilters().isEmpty()) {
+            throw new BadRequestException("Полнотекстовый поиск не сочетается с условиями на атрибуты");
+        }
+        int limit = filter.getLimit();
+        EavEntitySearchCursor after = EavEntitySearchCursor.decode(filter.getAfter());
+        List<EavEntitySearchHit> hits = repository.search(filter.getSearch(),
+                after != null ? after.getRank() : null, after != null ? after.getId() : null, limit + 1);
+        boolean hasNext = hits.size() > limit;
+        List<EavEntitySearchHit> content = hasNext ? hits.subList(0, limit) : hits;
+        recordRows("findSearchPage", content.size());
+        return new SliceImpl<>(content, PageRequest.ofSize(limit), hasNext);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return repository.existsById(id);
+    }
+
+    @Override
+    public Slice<EavIncomingRelation> findIncoming(Long targetId, Long afterId, int limit) {
+        // Как и в findPage, лишняя запись показывает наличие следующей страницы без COUNT
+        List<EavIncomingRelation> relations = relationRepository.findIncoming(targetId,
+                afterId != null ? afterId : 0L, Limit.of(limit + 1));
+        boolean hasNext = relations.size() > limit;
+        List<EavIncomingRelation> content = hasNext ? relations.subList(0, limit) : relations;
+        recordRows("findIncoming", content.size());
+        return new SliceImpl<>(content, PageRequest.ofSize(limit), hasNext);
+    }
+
+    @Override
+    public List<EavGraphRow> findGraph(Long rootId, int maxDepth, String relationType) {
+        List<EavGraphRow> rows = repository.findGraph(rootId, maxDepth, relationType);
+        recordRows("findGraph", rows.size());
+        return rows;
+    }
+
+    /**
+     * Обходит сущности заданного типа (или все, если тип не задан) через серверный курсор.
+     * Сущности обрабатываются порциями: коллекции порции догружаются двумя запросами по id,
+     * после обработки порция отсоединяется от контекста, поэтому расход памяти не зависит от объёма выборки.
+     */
+    @Override
+    public void forEachByType(String type, Consumer<EavEntity> action) {
+        try (Stream<EavEntity> stream = type == null ? repository.streamAllBy() : repository.streamByType(type)) {
+            Iterator<EavEntity> iterator = stream.iterator();
+            List<Long> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next().getId());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    List<EavEntity> entities = hydrate(chunk, EnumSet.allOf(EavEntityInclude.class));
+                    entities.forEach(action);
+                    entities.forEach(repository::detach);
+                    chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Число сущностей, возвращённых запросом, в метрику eav.dao.rows с тегом operation.
+     */
+    private List<EavEntity> recordRows(String operation, List<EavEntity> rows) {
+        recordRows(operation, rows.size());
+        return rows;
+    }
+
+    private void recordRows(String operation, int count) {
+        DistributionSummary.builder("eav.dao.rows")
+                .description("Сущности, возвращённые запросом DAO")
+                .tag("operation", operation)
+                .register(registry)
+                .record(count);
+    }
+
+    /**
+     * Второй этап поиска: по уже отсортированному списку id загружает сущности
+     * с запрошенными коллекциями — атрибутами и отдельным запросом связями. Запросы возвращают
+     * одни и те же экземпляры из контекста персистентности, порядок id сохраняется.
+     * Коллекции, которые не запрошены, не загружаются и не должны читаться при маппинге.
+     * При включённой jsonb-копии атрибуты приходят вместе со строкой сущности и отдельно не загружаются.
+     * Список id передаётся в каждый запрос одним параметром-массивом, поэтому число операторов
+     * и параметров не зависит от его длины.
+     */
+    private List<EavEntity> hydrate(List<Long> ids, Set<EavEntityInclude> includes) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Long[] idArray = ids.toArray(new Long[0]);
+        Map<Long, EavEntity> entitiesById = new HashMap<>();
+        boolean loadAttributes = includes.contains(EavEntityInclude.ATTRIBUTES) && !documentEnabled;
+        boolean loadRelations = includes.contains(EavEntityInclude.RELATIONS);
+        if (loadAttributes) {
+            repository.findAllWithAttributesByIdIn(idArray).forEach(entity -> entitiesById.putIfAbsent(entity.getId(), entity));
+        }
+        if (loadRelations) {
+            repository.findAllWithRelationsByIdIn(idArray).forEach(entity -> entitiesById.putIfAbsent(entity.getId(), entity));
+        }
+        if (!loadAttributes && !loadRelations) {
+            repository.findAllByIdIn(idArray).forEach(entity -> entitiesById.putIfAbsent(entity.getId(), entity));
+        }
+        return ids.stream()
+                .map(entitiesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
     public EavEntity save(EavEntity entity) {
+        internAttributeNames(List.of(entity));
         return repository.save(entity);
     }
 
+    @Override
+    public List<EavEntity> saveAll(List<EavEntity> entities) {
+        internAttributeNames(entities);
+        return repository.saveAll(entities);
+    }
+
     @Override
     public EavEntity edit(EavEntity entity) {
-        return repository.save(entity);
+        internAttributeNames(List.of(entity));
+        // Версия увеличивается при сбросе: после него она актуальна для ответа и ETag,
+        // а конфликт версий проявляется здесь, а не при коммите
+        return repository.saveAndFlush(entity);
+    }
+
+    // Атрибуты хранят id имени из справочника, поэтому новые имена регистрируются до сброса контекста
+    private void internAttributeNames(Collection<EavEntity> entities) {
+        List<String> names = entities.stream()
+                .filter(entity -> entity.getAttributes() != null)
+                .flatMap(entity -> entity.getAttributes().stream())
+                .map(EavAttributeValue::getAttributeName)
+                .collect(Collectors.toList());
+        attributeDictionary.internAll(names);
     }
 
     @Override
     public void deleteEntity(Long id) {
+        // Без этого удаление сущности, на которую ссылаются другие, нарушает внешний ключ target_id
+        relationRepository.deleteIncoming(id);
         repository.deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Long findMaxId() {
+        return repository.findMaxId();
+    }
+
+    @Override
+    public int rebuildAttributesDocuments(long fromId, long toId) {
+        return repository.rebuildAttributesDocuments(fromId, toId);
+    }
+}
@@ -1,19 +1,56 @@
 package src.main.eav.dao.specification;
 
-import jakarta.persistence.criteria.Join;
-import jakarta.persistence.criteria.JoinType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
+import src.main.eav.config.JsonbFunctionContributor;
+import src.main.eav.model.EavAttributeDefinition;
+import src.main.eav.model.EavAttributeDocument;
+import src.main.eav.model.EavAttributeValue;
+import src.main.eav.error.BadRequestException;
 import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavValueType;
+import src.main.eav.controller.filter.EavAttributeFilter;
+import src.main.eav.controller.filter.EavEntityCursor;
 import src.main.eav.controller.filter.EavEntityFilter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Спецификации отбирают только сами сущности (по сути — их id) без fetch-join коллекций.
+ * Атрибуты и связи найденных сущностей догружаются отдельными запросами по списку id
+ * в DAO-слое, поэтому здесь не возникает декартова произведения attributes x relations.
+ * <p>
+ * При eav.document.enabled=true условия на равенство значений атрибутов проверяются
+ * по jsonb-копии атрибутов (attributes_document @> ...) через GIN-индекс вместо EXISTS-подзапроса.
+ */
 @Component
 public class EavEntitySpecification {
 
+    // Тип не задан — ключ "type" опускается, и элемент условия совпадает со значением любого типа
+    private static final ObjectMapper DOCUMENT_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final boolean documentEnabled;
+
+    @Autowired
+    public EavEntitySpecification(@Value("${eav.document.enabled:false}") boolean documentEnabled) {
+        this.documentEnabled = documentEnabled;
+    }
+
     private Predicate buildPredicate(EavEntityFilter filter, Root<EavEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
         // Начинаем со стандартного "всегда истина"
         Predicate predicate = cb.conjunction();
@@ -22,45 +59,195 @@ public class EavEntitySpecification {
         if (filter.getSearch() != null && !filter.getSearch().trim().isEmpty()) {
             String searchTerm = "%" + filter.getSearch().toLowerCase() + "%";
 
-            // Для поиска по attributeName создаем join с коллекцией attributes
-            Join<Object, Object> attributesJoin = root.join("attributes", JoinType.LEFT);
+            // Подстрока ищется в справочнике имён (по триграммному индексу), а строки атрибутов
+            // отбираются по id найденных имён
+            Subquery<Integer> definitionSubquery = query.subquery(Integer.class);
+            Root<EavAttributeDefinition> definition = definitionSubquery.from(EavAttributeDefinition.class);
+            definitionSubquery.select(definition.get("id"))
+                    .where(cb.like(cb.lower(definition.get("name")), searchTerm));
+
+            // Для поиска по attributeName используем EXISTS вместо join: строки сущности не размножаются,
+            // и DISTINCT не нужен
+            Subquery<Integer> attributeSubquery = query.subquery(Integer.class);
+            Root<EavAttributeValue> attribute = attributeSubquery.from(EavAttributeValue.class);
+            attributeSubquery.select(cb.literal(1))
+                    .where(cb.equal(attribute.get("entity"), root),
+                            attribute.get("attributeId").in(definitionSubquery));
 
             // Пишем два предиката: один для поля type, другой для attributeName
             Predicate typePredicate = cb.like(cb.lower(root.get("type")), searchTerm);
-            Predicate attributeNamePredicate = cb.like(cb.lower(attributesJoin.get("attributeName")), searchTerm);
+            Predicate attributeNamePredicate = cb.exists(attributeSubquery);
 
             // Объединяем оба условия с логическим OR
             predicate = cb.and(predicate, cb.or(typePredicate, attributeNamePredicate));
         }
 
-        // Если тип запроса не COUNT, подгружаем связанные коллекции attributes и relations.
-        if (query != null && !query.getResultType().equals(Long.class)) {
-            // Используем fetch для жадной загрузки (при условии, что они нужны в результате)
-            root.fetch("attributes", JoinType.LEFT);
-            root.fetch("relations", JoinType.LEFT);
+        if (filter.getAttributeFilters() != null && !filter.getAttributeFilters().isEmpty()) {
+            // Каждое условие — отдельный EXISTS; ANY объединяет их через OR, иначе через AND
+            Predicate[] attributePredicates = filter.getAttributeFilters().stream()
+                    .map(attributeFilter -> buildAttributePredicate(attributeFilter, root, query, cb))
+                    .toArray(Predicate[]::new);
+            Predicate attributes = filter.getMatch() == EavEntityFilter.Match.ANY
+                    ? cb.or(attributePredicates)
+                    : cb.and(attributePredicates);
+            predicate = cb.and(predicate, attributes);
         }
 
         return predicate;
     }
 
+    /**
+     * Условие на значение атрибута как EXISTS-подзапрос по (attribute_id, типизированная колонка):
+     * сравнение выполняется в БД и может использовать составной B-tree индекс.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate buildAttributePredicate(EavAttributeFilter attributeFilter, Root<EavEntity> root,
+                                              CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (attributeFilter.getName() == null || attributeFilter.getName().isBlank()) {
+            throw new BadRequestException("Не задано имя атрибута в условии фильтра");
+        }
+        EavValueType type = EavValueType.orDefault(attributeFilter.getType());
+        if (documentEnabled && isEqualityOnly(attributeFilter)) {
+            return buildDocumentPredicate(attributeFilter, type, root, cb);
+        }
+
+        Subquery<Integer> attributeSubquery = query.subquery(Integer.class);
+        Root<EavAttributeValue> attribute = attributeSubquery.from(EavAttributeValue.class);
+        Path column = attribute.get(type.getAttributePath());
+
+        List<Predicate> conditions = new ArrayList<>();
+        conditions.add(cb.equal(attribute.get("entity"), root));
+        conditions.add(cb.equal(attribute.get("attributeName"), attributeFilter.getName()));
+        if (attributeFilter.getEq() != null) {
+            conditions.add(cb.equal(column, parse(type, attributeFilter.getEq())));
+        }
+        if (attributeFilter.getGt() != null) {
+            conditions.add(cb.greaterThan(column, (Comparable) parse(type, attributeFilter.getGt())));
+        }
+        if (attributeFilter.getGte() != null) {
+            conditions.add(cb.greaterThanOrEqualTo(column, (Comparable) parse(type, attributeFilter.getGte())));
+        }
+        if (attributeFilter.getLt() != null) {
+            conditions.add(cb.lessThan(column, (Comparable) parse(type, attributeFilter.getLt())));
+        }
+        if (attributeFilter.getLte() != null) {
+            conditions.add(cb.lessThanOrEqualTo(column, (Comparable) parse(type, attributeFilter.getLte())));
+        }
+        if (attributeFilter.getIn() != null && !attributeFilter.getIn().isEmpty()) {
+            List<Object> values = new ArrayList<>();
+            for (String raw : attributeFilter.getIn()) {
+                values.add(parse(type, raw));
+            }
+            conditions.add(column.in(values));
+        }
+        // Без условий на значение остаётся проверка наличия атрибута с непустым значением нужного типа
+        conditions.add(cb.isNotNull(column));
+
+        attributeSubquery.select(cb.literal(1)).where(conditions.toArray(new Predicate[0]));
+        return cb.exists(attributeSubquery);
+    }
+
+    private static boolean isEqualityOnly(EavAttributeFilter attributeFilter) {
+        boolean hasEquality = attributeFilter.getEq() != null
+                || (attributeFilter.getIn() != null && !attributeFilter.getIn().isEmpty());
+        return hasEquality && attributeFilter.getGt() == null && attributeFilter.getGte() == null
+                && attributeFilter.getLt() == null && attributeFilter.getLte() == null;
+    }
+
+    /**
+     * Условие на равенство как проверка вхождения элемента {"name", "value", "type"} в jsonb-копию атрибутов.
+     * Значение приводится к канонической записи типа — так же, как при сохранении атрибута;
+     * in превращается в OR из проверок вхождения, каждая из которых использует GIN-индекс.
+     * Условие без типа, как и EXISTS по текстовой колонке, совпадает со значением любого типа
+     * с той же канонической записью, поэтому тип в элемент не попадает.
+     */
+    private Predicate buildDocumentPredicate(EavAttributeFilter attributeFilter, EavValueType type,
+                                             Root<EavEntity> root, CriteriaBuilder cb) {
+        Path<Object> document = root.get("attributesDocument");
+        List<Predicate> conditions = new ArrayList<>();
+        if (attributeFilter.getEq() != null) {
+            conditions.add(contains(document, attributeFilter, type, attributeFilter.getEq(), cb));
+        }
+        if (attributeFilter.getIn() != null && !attributeFilter.getIn().isEmpty()) {
+            Predicate[] alternatives = attributeFilter.getIn().stream()
+                    .map(raw -> contains(document, attributeFilter, type, raw, cb))
+                    .toArray(Predicate[]::new);
+            conditions.add(cb.or(alternatives));
+        }
+        return cb.and(conditions.toArray(new Predicate[0]));
+    }
+
+    private static Predicate contains(Path<Object> document, EavAttributeFilter attributeFilter, EavValueType type,
+                                      String raw, CriteriaBuilder cb) {
+        String name = attributeFilter.getName();
+        EavAttributeDocument element = new EavAttributeDocument(name, parse(type, raw).toString(),
+                attributeFilter.getType());
+        String json;
+        try {
+            json = DOCUMENT_MAPPER.writeValueAsString(Collections.singletonList(element));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать условие фильтра: " + name, e);
+        }
+        // value() в отличие от literal() передаёт JSON параметром запроса, а не встраивает в текст SQL
+        return cb.isTrue(cb.function(JsonbFunctionContributor.JSONB_CONTAINS, Boolean.class, document,
+                ((HibernateCriteriaBuilder) cb).value(json)));
+    }
+
+    private static Comparable<?> parse(EavValueType type, String raw) {
+        try {
+            return type.parse(raw);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректное значение для типа " + type + ": " + raw);
+        }
+    }
+
     /**
      * Универсальная спецификация для фильтрации с динамической сортировкой по полю type.
      * Сортировка применяется в зависимости от значения sortOrder из фильтра:
      * - ASC – сортировка по возрастанию
      * - DESC – сортировка по убыванию
+     * Вторым ключом сортировки идёт id, чтобы порядок был детерминированным.
      */
     public Specification<EavEntity> getFilter(EavEntityFilter filter) {
+        boolean descending = filter.getSortOrder() == EavEntityFilter.SortOrder.DESC;
         return (root, query, cb) -> {
-            if (query != null) {
-                query.distinct(true);
-                // Применяем динамическую сортировку по полю type в зависимости от sortOrder
-                if (filter.getSortOrder() != null && filter.getSortOrder() == EavEntityFilter.SortOrder.DESC) {
-                    query.orderBy(cb.desc(root.get("type")));
-                } else {
-                    query.orderBy(cb.asc(root.get("type")));
-                }
-            }
+            applyOrder(root, query, cb, descending);
             return buildPredicate(filter, root, query, cb);
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Спецификация для keyset-пагинации: те же условия поиска, что и в getFilter,
+     * плюс условие "строго после курсора" по паре (type, id) в направлении sortOrder.
+     * В отличие от OFFSET, стоимость запроса не зависит от глубины страницы.
+     */
+    public Specification<EavEntity> getPage(EavEntityFilter filter) {
+        EavEntityCursor after = EavEntityCursor.decode(filter.getAfter());
+        boolean descending = filter.getSortOrder() == EavEntityFilter.SortOrder.DESC;
+        return (root, query, cb) -> {
+            applyOrder(root, query, cb, descending);
+            Predicate predicate = buildPredicate(filter, root, query, cb);
+            if (after != null) {
+                Path<String> type = root.get("type");
+                Path<Long> id = root.get("id");
+                Predicate beyondType = descending
+                        ? cb.lessThan(type, after.getType())
+                        : cb.greaterThan(type, after.getType());
+                Predicate beyondId = descending
+                        ? cb.lessThan(id, after.getId())
+                        : cb.greaterThan(id, after.getId());
+                predicate = cb.and(predicate,
+                        cb.or(beyondType, cb.and(cb.equal(type, after.getType()), beyondId)));
+            }
+            return predicate;
+        };
+    }
+
+    private void applyOrder(Root<EavEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb, boolean descending) {
+        if (descending) {
+            query.orderBy(cb.desc(root.get("type")), cb.desc(root.get("id")));
+        } else {
+            query.orderBy(cb.asc(root.get("type")), cb.asc(root.get("id")));
+        }
+    }
+}
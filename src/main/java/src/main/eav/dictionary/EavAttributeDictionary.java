@@ -0,0 +1,184 @@
+package src.main.eav.dictionary;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Справочник имён атрибутов (eav_attribute_definition) в памяти: имя ↔ id в обе стороны.
+ * Загружается целиком при старте; имя, созданное другим узлом, дочитывается из БД при первом обращении.
+ * Пары имя-id не меняются и не удаляются, поэтому однажды прочитанная пара в кэше не устаревает.
+ * Отсутствие имени кэшируется ненадолго (eav.attribute-dictionary.unknown-names.spec): условие
+ * по неизвестному имени не обращается к БД при каждом запросе, а имя другого узла видно после истечения записи.
+ * <p>
+ * Используется в маппинге EavAttributeValue.attributeName (EavAttributeNameConverter), поэтому работает
+ * через JdbcTemplate, а не через EntityManager: обращение к справочнику случается посреди загрузки сущностей.
+ */
+@Component
+public class EavAttributeDictionary {
+
+    // id, которого нет в справочнике: условие по неизвестному имени не находит ни одной строки
+    public static final int UNKNOWN_ID = 0;
+
+    private static final Logger log = LoggerFactory.getLogger(EavAttributeDictionary.class);
+
+    // Ключ ресурса транзакции с именами, добавленными в ней и ещё не зафиксированными
+    private final Object pendingKey = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> names = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> unknownNames;
+
+    @Autowired
+    public EavAttributeDictionary(JdbcTemplate jdbcTemplate,
+                                  @Value("${spring.jpa.properties.hibernate.default_schema:aev}") String schema,
+                                  @Value("${eav.attribute-dictionary.unknown-names.spec:maximumSize=10000,expireAfterWrite=10s}")
+                                  String unknownNamesSpec) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema + ".eav_attribute_definition";
+        this.unknownNames = Caffeine.from(unknownNamesSpec).build();
+    }
+
+    // JdbcTemplate создаётся после миграций Flyway, поэтому таблица к этому моменту уже есть
+    @PostConstruct
+    public void warmUp() {
+        jdbcTemplate.query("SELECT id, name FROM " + table, rs -> {
+            remember(rs.getInt(1), rs.getString(2));
+        });
+        log.info("Загружен справочник имён атрибутов: {}", ids.size());
+    }
+
+    /**
+     * @return id имени или null, если такого имени в справочнике нет
+     */
+    public Integer idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        id = pending().get(name);
+        if (id != null) {
+            return id;
+        }
+        if (unknownNames.getIfPresent(name) != null) {
+            return null;
+        }
+        List<Integer> found = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE name = ?", Integer.class, name);
+        if (found.isEmpty()) {
+            unknownNames.put(name, Boolean.TRUE);
+            return null;
+        }
+        remember(found.get(0), name);
+        return found.get(0);
+    }
+
+    public String nameOf(int id) {
+        String name = names.get(id);
+        if (name != null) {
+            return name;
+        }
+        // Строку, вставленную этой транзакцией, запрос ниже тоже увидит, но до коммита её id не кэшируется
+        for (Map.Entry<String, Integer> entry : pending().entrySet()) {
+            if (entry.getValue() == id) {
+                return entry.getKey();
+            }
+        }
+        List<String> found = jdbcTemplate.queryForList("SELECT name FROM " + table + " WHERE id = ?", String.class, id);
+        if (found.isEmpty()) {
+            throw new IllegalStateException("Нет имени атрибута с id " + id);
+        }
+        remember(id, found.get(0));
+        return found.get(0);
+    }
+
+    /**
+     * Добавляет в справочник недостающие имена перед записью атрибутов. Вставка идёт в транзакции
+     * и на соединении вызывающего: отдельная транзакция занимала бы второе соединение пула на каждую запись.
+     * До коммита добавленные имена видны только этой транзакции, в общий кэш они попадают после коммита,
+     * поэтому при откате в кэше не остаётся id, которого нет в БД.
+     * Имена вставляются в порядке сортировки, чтобы параллельные вставки не взаимоблокировались;
+     * запись с тем же новым именем ждёт коммита первой.
+     */
+    public void internAll(Collection<String> attributeNames) {
+        Map<String, Integer> pending = pending();
+        List<String> missing = attributeNames.stream()
+                .filter(Objects::nonNull)
+                .filter(name -> !ids.containsKey(name) && !pending.containsKey(name))
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> inserted = new HashMap<>();
+        for (String name : missing) {
+            List<Integer> insertedId = jdbcTemplate.queryForList("INSERT INTO " + table + " (name) VALUES (?) "
+                    + "ON CONFLICT (name) DO NOTHING RETURNING id", Integer.class, name);
+            if (insertedId.isEmpty()) {
+                // Имя уже зафиксировано другой транзакцией: новый оператор видит его строку
+                remember(jdbcTemplate.queryForObject("SELECT id FROM " + table + " WHERE name = ?", Integer.class, name),
+                        name);
+            } else {
+                inserted.put(name, insertedId.get(0));
+            }
+        }
+        if (inserted.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Без транзакции каждый оператор фиксируется сразу
+            inserted.forEach((name, id) -> remember(id, name));
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(pendingKey)) {
+            TransactionSynchronizationManager.bindResource(pendingKey, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.forEach((name, id) -> remember(id, name));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+        }
+        pending.putAll(inserted);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> pending() {
+        Map<String, Integer> pending = (Map<String, Integer>) TransactionSynchronizationManager.getResource(pendingKey);
+        return pending != null ? pending : new HashMap<>();
+    }
+
+    private void remember(int id, String name) {
+        ids.put(name, id);
+        names.put(id, name);
+        unknownNames.invalidate(name);
+    }
+}
@@ -0,0 +1,37 @@
+package src.main.eav.dictionary;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Хранит имя атрибута как id из справочника: EavAttributeValue и весь код выше работают с именем.
+ * Экземпляр создаёт Hibernate через контейнер бинов Spring, поэтому справочник внедряется конструктором.
+ * <p>
+ * Новые имена сюда не попадают: перед записью их добавляет DAO (EavAttributeDictionary.internAll).
+ * Неизвестное имя в условии запроса превращается в UNKNOWN_ID, и условие ничего не находит.
+ */
+@Converter
+public class EavAttributeNameConverter implements AttributeConverter<String, Integer> {
+
+    private final EavAttributeDictionary dictionary;
+
+    @Autowired
+    public EavAttributeNameConverter(EavAttributeDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        if (name == null) {
+            return null;
+        }
+        Integer id = dictionary.idOf(name);
+        return id != null ? id : EavAttributeDictionary.UNKNOWN_ID;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id != null ? dictionary.nameOf(id) : null;
+    }
+}
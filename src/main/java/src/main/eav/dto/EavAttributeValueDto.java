@@ -1,5 +1,7 @@
 package src.main.eav.dto;
 
+import src.main.eav.model.EavValueType;
+
 public class EavAttributeValueDto {
 
     private Long id;
@@ -8,6 +10,9 @@ public class EavAttributeValueDto {
 
     private String value;
 
+    // Тип значения; если не задан, значение хранится как TEXT
+    private EavValueType valueType;
+
     public String getAttributeName() {
         return attributeName;
     }
@@ -24,6 +29,14 @@ public class EavAttributeValueDto {
         this.value = value;
     }
 
+    public EavValueType getValueType() {
+        return valueType;
+    }
+
+    public void setValueType(EavValueType valueType) {
+        this.valueType = valueType;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,49 @@
+package src.main.eav.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EavBulkChunkResultDto {
+
+    // Порядковый номер порции во входном потоке, начиная с 0
+    private int chunk;
+
+    private int received;
+
+    private List<Long> ids = new ArrayList<>();
+
+    // Текст ошибки, если порция не сохранена (транзакция порции откатывается целиком)
+    private String error;
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setChunk(int chunk) {
+        this.chunk = chunk;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
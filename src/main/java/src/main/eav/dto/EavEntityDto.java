@@ -1,5 +1,7 @@
 package src.main.eav.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.HashSet;
 import java.util.Set;
 
@@ -8,8 +10,15 @@ public class EavEntityDto {
 
     private String type;
 
+    // Версия сущности, она же ETag. В PUT и PATCH ожидаемая версия передаётся заголовком If-Match
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
+    // null, если коллекция не запрошена (include в списке сущностей), и тогда поле не сериализуется
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<EavAttributeValueDto> attributes = new HashSet<>();
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<EavRelationDto> relations = new HashSet<>();
 
     public String getType() {
@@ -40,6 +49,14 @@ public class EavEntityDto {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -0,0 +1,28 @@
+package src.main.eav.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EavEntityPageDto {
+
+    private List<EavEntityDto> items = new ArrayList<>();
+
+    // Курсор следующей страницы; null, если страница последняя
+    private String nextCursor;
+
+    public List<EavEntityDto> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setItems(List<EavEntityDto> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,75 @@
+package src.main.eav.dto;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Частичное изменение сущности. Незаданные поля не трогаются.
+ */
+public class EavEntityPatchDto {
+
+    private String type;
+
+    // Атрибуты для вставки или обновления; совпадение определяется по attributeName
+    private Set<EavAttributeValueDto> attributes = new HashSet<>();
+
+    // Имена атрибутов, которые нужно удалить
+    private Set<String> removeAttributes = new HashSet<>();
+
+    // Связи для добавления; уже существующая связь (relationType, targetId) повторно не создаётся
+    private Set<EavRelationDto> relations = new HashSet<>();
+
+    // Связи для удаления: по id, если он задан, иначе по relationType и, при наличии, targetId
+    private Set<EavRelationDto> removeRelations = new HashSet<>();
+
+    // Ожидаемая версия сущности из If-Match; null — изменение применяется к текущей версии
+    private Long version;
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Set<EavAttributeValueDto> getAttributes() {
+        return attributes;
+    }
+
+    public Set<String> getRemoveAttributes() {
+        return removeAttributes;
+    }
+
+    public Set<EavRelationDto> getRelations() {
+        return relations;
+    }
+
+    public Set<EavRelationDto> getRemoveRelations() {
+        return removeRelations;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void setAttributes(Set<EavAttributeValueDto> attributes) {
+        this.attributes = attributes;
+    }
+
+    public void setRemoveAttributes(Set<String> removeAttributes) {
+        this.removeAttributes = removeAttributes;
+    }
+
+    public void setRelations(Set<EavRelationDto> relations) {
+        this.relations = relations;
+    }
+
+    public void setRemoveRelations(Set<EavRelationDto> removeRelations) {
+        this.removeRelations = removeRelations;
+    }
+}
@@ -0,0 +1,49 @@
+package src.main.eav.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EavGraphDto {
+
+    private Long rootId;
+
+    // Максимальная глубина обхода, с которой построен подграф
+    private int depth;
+
+    // Достигнутые сущности в порядке глубины; корень — первый
+    private List<EavGraphNodeDto> nodes = new ArrayList<>();
+
+    private List<EavGraphEdgeDto> edges = new ArrayList<>();
+
+    public Long getRootId() {
+        return rootId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public List<EavGraphNodeDto> getNodes() {
+        return nodes;
+    }
+
+    public List<EavGraphEdgeDto> getEdges() {
+        return edges;
+    }
+
+    public void setRootId(Long rootId) {
+        this.rootId = rootId;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setNodes(List<EavGraphNodeDto> nodes) {
+        this.nodes = nodes;
+    }
+
+    public void setEdges(List<EavGraphEdgeDto> edges) {
+        this.edges = edges;
+    }
+}
@@ -0,0 +1,44 @@
+package src.main.eav.dto;
+
+public class EavGraphEdgeDto {
+
+    private Long id;
+
+    private Long sourceId;
+
+    private Long targetId;
+
+    private String relationType;
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getSourceId() {
+        return sourceId;
+    }
+
+    public Long getTargetId() {
+        return targetId;
+    }
+
+    public String getRelationType() {
+        return relationType;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public void setSourceId(Long sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public void setTargetId(Long targetId) {
+        this.targetId = targetId;
+    }
+
+    public void setRelationType(String relationType) {
+        this.relationType = relationType;
+    }
+}
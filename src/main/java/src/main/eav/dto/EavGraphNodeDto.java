@@ -0,0 +1,35 @@
+package src.main.eav.dto;
+
+public class EavGraphNodeDto {
+
+    private Long id;
+
+    private String type;
+
+    // Длина кратчайшего пути от корня (у корня — 0)
+    private int depth;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+}
@@ -0,0 +1,44 @@
+package src.main.eav.dto;
+
+public class EavIncomingRelationDto {
+
+    private Long id;
+
+    private String relationType;
+
+    private Long sourceId;
+
+    private String sourceType;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRelationType() {
+        return relationType;
+    }
+
+    public Long getSourceId() {
+        return sourceId;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public void setRelationType(String relationType) {
+        this.relationType = relationType;
+    }
+
+    public void setSourceId(Long sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public void setSourceType(String sourceType) {
+        this.sourceType = sourceType;
+    }
+}
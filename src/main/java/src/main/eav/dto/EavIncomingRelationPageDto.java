@@ -0,0 +1,28 @@
+package src.main.eav.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EavIncomingRelationPageDto {
+
+    private List<EavIncomingRelationDto> items = new ArrayList<>();
+
+    // id последней связи страницы для параметра after; null, если страница последняя
+    private String nextCursor;
+
+    public List<EavIncomingRelationDto> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setItems(List<EavIncomingRelationDto> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,52 @@
+package src.main.eav.dto;
+
+public class EavIngestTicketDto {
+
+    public enum Status {
+        QUEUED,
+        APPLIED,
+        FAILED;
+    }
+
+    private String ticket;
+
+    private Status status;
+
+    // id созданной сущности, когда запись применена
+    private Long entityId;
+
+    // Причина ошибки, когда запись не удалось сохранить
+    private String error;
+
+    public String getTicket() {
+        return ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setTicket(String ticket) {
+        this.ticket = ticket;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
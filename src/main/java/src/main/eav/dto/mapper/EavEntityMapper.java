@@ -1,12 +1,23 @@
 package src.main.eav.dto.mapper;
 
+import src.main.eav.controller.filter.EavEntityInclude;
 import src.main.eav.dto.EavEntityDto;
 import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavIncomingRelationDto;
 import src.main.eav.dto.EavRelationDto;
+import src.main.eav.model.EavAttributeDocument;
 import src.main.eav.model.EavEntity;
 import src.main.eav.model.EavAttributeValue;
 import src.main.eav.model.EavRelation;
+import src.main.eav.model.EavValueType;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavIncomingRelation;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -16,14 +27,44 @@ public class EavEntityMapper {
      * Преобразует сущность EavEntity в DTO.
      */
     public static EavEntityDto entityToDto(EavEntity source) {
+        return entityToDto(source, EnumSet.allOf(EavEntityInclude.class));
+    }
+
+    /**
+     * Преобразует сущность в DTO только с запрошенными коллекциями. Незапрошенные коллекции
+     * не читаются (и не догружаются лениво), а в DTO остаются null и не попадают в JSON.
+     */
+    public static EavEntityDto entityToDto(EavEntity source, Set<EavEntityInclude> includes) {
+        return entityToDto(source, includes, false);
+    }
+
+    /**
+     * То же, но при attributesFromDocument атрибуты берутся из jsonb-копии в строке сущности,
+     * а коллекция attributes не читается. Если копия ещё не построена, используется коллекция.
+     * У атрибутов из копии нет id: копия хранит только имя, значение и тип.
+     */
+    public static EavEntityDto entityToDto(EavEntity source, Set<EavEntityInclude> includes,
+                                           boolean attributesFromDocument) {
         if (source == null) {
             return null;
         }
         EavEntityDto dto = new EavEntityDto();
         dto.setId(source.getId());
         dto.setType(source.getType());
+        dto.setVersion(source.getVersion());
+        if (!includes.contains(EavEntityInclude.ATTRIBUTES)) {
+            dto.setAttributes(null);
+        }
+        if (!includes.contains(EavEntityInclude.RELATIONS)) {
+            dto.setRelations(null);
+        }
 
-        if (source.getAttributes() != null) {
+        if (includes.contains(EavEntityInclude.ATTRIBUTES) && attributesFromDocument
+                && source.getAttributesDocument() != null) {
+            dto.setAttributes(source.getAttributesDocument().stream()
+                    .map(EavEntityMapper::documentToAttributeDto)
+                    .collect(Collectors.toSet()));
+        } else if (includes.contains(EavEntityInclude.ATTRIBUTES) && source.getAttributes() != null) {
             // Преобразование Set<EavAttributeValue> в Set<EavAttributeValueDto>
             Set<EavAttributeValueDto> attributesDto = source.getAttributes().stream()
                     .map(EavEntityMapper::attributeEntityToDto)
@@ -31,7 +72,7 @@ public class EavEntityMapper {
             dto.setAttributes(attributesDto);
         }
 
-        if (source.getRelations() != null) {
+        if (includes.contains(EavEntityInclude.RELATIONS) && source.getRelations() != null) {
             // Преобразование Set<EavRelation> в Set<EavRelationDto>
             Set<EavRelationDto> relationsDto = source.getRelations().stream()
                     .map(EavEntityMapper::relationEntityToDto)
@@ -42,6 +83,21 @@ public class EavEntityMapper {
         return dto;
     }
 
+    /**
+     * Преобразует проекцию (id, type) в DTO без коллекций.
+     */
+    public static EavEntityDto summaryToDto(EavEntitySummary source) {
+        if (source == null) {
+            return null;
+        }
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(source.getId());
+        dto.setType(source.getType());
+        dto.setAttributes(null);
+        dto.setRelations(null);
+        return dto;
+    }
+
     /**
      * Преобразует DTO в сущность EavEntity.
      * Атрибуты и связи, как правило, обрабатываются в сервисном слое.
@@ -53,6 +109,10 @@ public class EavEntityMapper {
         EavEntity entity = new EavEntity();
         entity.setId(dto.getId());
         entity.setType(dto.getType());
+        // Без версии сущность новая; с id и версией сохранение проверяет, что она не изменилась
+        entity.setVersion(dto.getVersion());
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
         // Обработка коллекций (атрибутов и связей) оставлена для бизнес-логики в сервисе
         return entity;
     }
@@ -65,9 +125,34 @@ public class EavEntityMapper {
         dto.setId(source.getId());
         dto.setAttributeName(source.getAttributeName());
         dto.setValue(source.getValue());
+        dto.setValueType(EavValueType.orDefault(source.getValueType()));
         return dto;
     }
 
+    public static EavAttributeValueDto documentToAttributeDto(EavAttributeDocument source) {
+        if (source == null) {
+            return null;
+        }
+        EavAttributeValueDto dto = new EavAttributeValueDto();
+        dto.setAttributeName(source.getName());
+        dto.setValue(source.getValue());
+        dto.setValueType(EavValueType.orDefault(source.getType()));
+        return dto;
+    }
+
+    /**
+     * Строит jsonb-копию атрибутов сущности из коллекции — источника истины.
+     */
+    public static List<EavAttributeDocument> attributesToDocument(Collection<EavAttributeValue> attributes) {
+        if (attributes == null) {
+            return new ArrayList<>();
+        }
+        return attributes.stream()
+                .map(attribute -> new EavAttributeDocument(attribute.getAttributeName(), attribute.getValue(),
+                        EavValueType.orDefault(attribute.getValueType())))
+                .collect(Collectors.toList());
+    }
+
     public static EavRelationDto relationEntityToDto(EavRelation source) {
         if (source == null) {
             return null;
@@ -80,4 +165,16 @@ public class EavEntityMapper {
         }
         return dto;
     }
-}
\ No newline at end of file
+
+    public static EavIncomingRelationDto incomingRelationToDto(EavIncomingRelation source) {
+        if (source == null) {
+            return null;
+        }
+        EavIncomingRelationDto dto = new EavIncomingRelationDto();
+        dto.setId(source.getId());
+        dto.setRelationType(source.getRelationType());
+        dto.setSourceId(source.getSourceId());
+        dto.setSourceType(source.getSourceType());
+        return dto;
+    }
+}
@@ -0,0 +1,11 @@
+package src.main.eav.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentUpdateException extends RuntimeException {
+  public ConcurrentUpdateException(String message) {
+    super(message);
+  }
+}
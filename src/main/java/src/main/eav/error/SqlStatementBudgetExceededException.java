@@ -0,0 +1,7 @@
+package src.main.eav.error;
+
+public class SqlStatementBudgetExceededException extends RuntimeException {
+  public SqlStatementBudgetExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,201 @@
+package src.main.eav.ingest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavIngestTicketDto;
+import src.main.eav.error.IngestQueueFullException;
+import src.main.eav.service.EavEntityService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь отложенной записи для POST /api/entities с заголовком Prefer: respond-async.
+ * Запрос только ставит сущность в ограниченную очередь и получает номер заявки; рабочие потоки
+ * забирают из очереди всё накопившееся (до eav.ingest.batch-size) и сохраняют одной транзакцией
+ * через EavEntityService.saveAll — с пакетной вставкой вместо транзакции на каждую сущность.
+ * <p>
+ * Если пакет не сохранился, его сущности сохраняются по одной, чтобы ошибка одной заявки
+ * не отклоняла остальные. Заполненная очередь отклоняет новые заявки (429), а не растёт без предела.
+ * Каждый рабочий поток держит не больше одного соединения, поэтому eav.ingest.workers должно быть
+ * заметно меньше размера пула. Заявки живут в памяти узла: при остановке очередь дописывается,
+ * но после аварийного завершения неприменённые заявки теряются.
+ */
+@Component
+@ConditionalOnProperty(name = "eav.ingest.enabled", havingValue = "true")
+public class EavIngestQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(EavIngestQueue.class);
+
+    // Как часто простаивающий рабочий поток проверяет, не остановлена ли очередь
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private final EavEntityService eavEntityService;
+    private final BlockingQueue<Submission> queue;
+    private final Cache<String, EavIngestTicketDto> tickets;
+    private final int workers;
+    private final int batchSize;
+    private final long shutdownTimeoutMs;
+    private final Counter rejected;
+    private final Counter applied;
+    private final Counter failed;
+
+    private ExecutorService executor;
+    // Заявки принимаются с момента создания бина, рабочие потоки подключаются в start()
+    private volatile boolean running = true;
+
+    @Autowired
+    public EavIngestQueue(EavEntityService eavEntityService, MeterRegistry registry,
+                          @Value("${eav.ingest.queue-capacity:10000}") int capacity,
+                          @Value("${eav.ingest.workers:2}") int workers,
+                          @Value("${eav.ingest.batch-size:500}") int batchSize,
+                          @Value("${eav.ingest.shutdown-timeout-ms:30000}") long shutdownTimeoutMs,
+                          @Value("${eav.ingest.tickets.spec:maximumSize=100000,expireAfterWrite=1h}") String ticketsSpec) {
+        this.eavEntityService = eavEntityService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.tickets = Caffeine.from(ticketsSpec).build();
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        registry.gauge("eav.ingest.queue.size", queue, BlockingQueue::size);
+        this.rejected = registry.counter("eav.ingest.rejected");
+        this.applied = registry.counter("eav.ingest.processed", "status", EavIngestTicketDto.Status.APPLIED.name());
+        this.failed = registry.counter("eav.ingest.processed", "status", EavIngestTicketDto.Status.FAILED.name());
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("eav-ingest-"));
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Новые заявки больше не принимаются; рабочие потоки дописывают то, что уже в очереди.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("Очередь записи не дописана за {} мс, осталось заявок: {}", shutdownTimeoutMs, queue.size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return заявка в статусе QUEUED
+     * @throws IngestQueueFullException если очередь заполнена или остановлена
+     */
+    public EavIngestTicketDto submit(EavEntityDto dto) {
+        EavIngestTicketDto ticket = ticket(UUID.randomUUID().toString(), EavIngestTicketDto.Status.QUEUED, null, null);
+        // Заявка регистрируется до постановки в очередь, иначе рабочий поток может обновить её раньше
+        tickets.put(ticket.getTicket(), ticket);
+        if (!running || !queue.offer(new Submission(ticket.getTicket(), dto))) {
+            tickets.invalidate(ticket.getTicket());
+            rejected.increment();
+            throw new IngestQueueFullException(running
+                    ? "Очередь записи заполнена, повторите запрос позже"
+                    : "Очередь записи остановлена");
+        }
+        return ticket;
+    }
+
+    public Optional<EavIngestTicketDto> findTicket(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void work() {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        // После остановки поток продолжает, пока очередь не опустеет
+        while (running || !queue.isEmpty()) {
+            Submission first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Submission> batch) {
+        List<EavEntityDto> dtos = new ArrayList<>(batch.size());
+        for (Submission submission : batch) {
+            dtos.add(submission.dto);
+        }
+        try {
+            List<Long> ids = eavEntityService.saveAll(dtos);
+            for (int i = 0; i < batch.size(); i++) {
+                tickets.put(batch.get(i).ticket,
+                        ticket(batch.get(i).ticket, EavIngestTicketDto.Status.APPLIED, ids.get(i), null));
+            }
+            applied.increment(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                // Транзакция пакета откатилась целиком: сохраняем по одной, чтобы найти виноватую заявку
+                for (Submission submission : batch) {
+                    apply(Collections.singletonList(submission));
+                }
+                return;
+            }
+            Submission submission = batch.get(0);
+            log.warn("Заявка {} не сохранена: {}", submission.ticket, e.getMessage());
+            tickets.put(submission.ticket,
+                    ticket(submission.ticket, EavIngestTicketDto.Status.FAILED, null, e.getMessage()));
+            failed.increment();
+        }
+    }
+
+    // Заявка читается из HTTP-потоков, поэтому при смене статуса заменяется целиком, а не меняется на месте
+    private static EavIngestTicketDto ticket(String id, EavIngestTicketDto.Status status, Long entityId, String error) {
+        EavIngestTicketDto ticket = new EavIngestTicketDto();
+        ticket.setTicket(id);
+        ticket.setStatus(status);
+        ticket.setEntityId(entityId);
+        ticket.setError(error);
+        return ticket;
+    }
+
+    private static final class Submission {
+        private final String ticket;
+        private final EavEntityDto dto;
+
+        private Submission(String ticket, EavEntityDto dto) {
+            this.ticket = ticket;
+            this.dto = dto;
+        }
+    }
+}
@@ -3,21 +3,25 @@ package src.main.eav.initializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import src.main.eav.dictionary.EavAttributeDictionary;
 import src.main.eav.model.EavEntity;
 import src.main.eav.model.EavAttributeValue;
 import src.main.eav.model.EavRelation;
 import src.main.eav.repository.EavEntityRepository;
 
 import java.util.HashSet;
+import java.util.List;
 
 @Component
 public class EavDataInitializer implements CommandLineRunner {
 
     private final EavEntityRepository eavEntityRepository;
+    private final EavAttributeDictionary attributeDictionary;
 
     @Autowired
-    public EavDataInitializer(EavEntityRepository eavEntityRepository) {
+    public EavDataInitializer(EavEntityRepository eavEntityRepository, EavAttributeDictionary attributeDictionary) {
         this.eavEntityRepository = eavEntityRepository;
+        this.attributeDictionary = attributeDictionary;
     }
 
     @Override
@@ -47,7 +51,9 @@ public class EavDataInitializer implements CommandLineRunner {
             // Сохраняем связанную сущность в БД
             eavEntityRepository.save(relatedEntity);
 
-            // Сохраняем основную сущность в БД (пока без связи)
+            // Сохраняем основную сущность в БД (пока без связи); имя атрибута сначала добавляем в справочник,
+            // так как запись идёт через репозиторий в обход DAO
+            attributeDictionary.internAll(List.of(attributeValue.getAttributeName()));
             eavEntityRepository.save(mainEntity);
 
             // Создаём связь между основной сущностью и связанной сущностью
@@ -0,0 +1,70 @@
+package src.main.eav.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dao.EavEntityDaoService;
+
+/**
+ * Пересобирает jsonb-копию атрибутов (eav_entity.attributes_document) из eav_attribute_value —
+ * например, после записи в таблицы атрибутов в обход сервиса или перед включением eav.document.enabled.
+ * Вектор полнотекстового поиска (search_vector) вычисляется из копии и пересчитывается вместе с ней.
+ * Сущности обрабатываются диапазонами id по eav.document.rebuild.chunk-size, каждый диапазон — в своей
+ * транзакции, поэтому блокировки строк держатся недолго. Расписание задаётся eav.document.rebuild.cron,
+ * по умолчанию задача не запускается.
+ */
+@Component
+public class EavAttributeDocumentRebuildJob {
+
+    private static final Logger log = LoggerFactory.getLogger(EavAttributeDocumentRebuildJob.class);
+
+    private final EavEntityDaoService daoService;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final int chunkSize;
+
+    @Autowired
+    public EavAttributeDocumentRebuildJob(EavEntityDaoService daoService, TransactionTemplate transactionTemplate,
+                                          CacheManager cacheManager,
+                                          @Value("${eav.document.rebuild.chunk-size:1000}") int chunkSize) {
+        this.daoService = daoService;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${eav.document.rebuild.cron:-}")
+    public void run() {
+        rebuild();
+    }
+
+    /**
+     * @return число сущностей, у которых пересобрана копия атрибутов
+     */
+    public int rebuild() {
+        Long maxId = daoService.findMaxId();
+        int rebuilt = 0;
+        if (maxId != null) {
+            for (long fromId = 0; fromId < maxId; fromId += chunkSize) {
+                long from = fromId;
+                Integer updated = transactionTemplate.execute(status ->
+                        daoService.rebuildAttributesDocuments(from, from + chunkSize));
+                rebuilt += updated != null ? updated : 0;
+            }
+        }
+        // В кэше могли остаться DTO, построенные по устаревшей копии
+        Cache cache = cacheManager.getCache(CacheConfig.ENTITIES_CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+        log.info("Пересобрана jsonb-копия атрибутов для {} сущностей", rebuilt);
+        return rebuilt;
+    }
+}
@@ -0,0 +1,20 @@
+package src.main.eav.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Максимальное число SQL-операторов, которое может выполнить один запрос к эндпоинту.
+ * Число не должно зависеть от размера выборки: рост с числом сущностей означает N+1.
+ * Поведение при превышении задаётся свойством eav.sql.budget.mode (LOG или FAIL).
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface SqlStatementBudget {
+
+    int value();
+}
@@ -0,0 +1,42 @@
+package src.main.eav.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Назначает текущему запросу бюджет SQL-операторов из аннотации @SqlStatementBudget
+ * на методе обработчика (или на классе контроллера).
+ */
+public class SqlStatementBudgetInterceptor implements HandlerInterceptor {
+
+    public enum Mode {
+        // Превышение только логируется по завершении запроса
+        LOG,
+        // Оператор сверх бюджета прерывает запрос исключением
+        FAIL
+    }
+
+    private final SqlStatementCounter counter;
+    private final Mode mode;
+
+    public SqlStatementBudgetInterceptor(SqlStatementCounter counter, Mode mode) {
+        this.counter = counter;
+        this.mode = mode;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            SqlStatementBudget budget = handlerMethod.getMethodAnnotation(SqlStatementBudget.class);
+            if (budget == null) {
+                budget = handlerMethod.getBeanType().getAnnotation(SqlStatementBudget.class);
+            }
+            if (budget != null) {
+                counter.setBudget(budget.value(), mode == Mode.FAIL);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package src.main.eav.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import src.main.eav.error.SqlStatementBudgetExceededException;
+
+/**
+ * Считает SQL-операторы, которые Hibernate подготавливает в текущем потоке.
+ * Подключается как StatementInspector (см. MetricsConfig); SQL не изменяется.
+ * <p>
+ * Счётчик сбрасывается в начале HTTP-запроса фильтром SqlStatementMetricsFilter и после
+ * запроса сохраняет последнее значение, поэтому тесты могут прочитать его через getCount().
+ * Бюджет снимается тем же фильтром по завершении запроса.
+ * Если для запроса задан бюджет в режиме FAIL, оператор сверх бюджета не выполняется:
+ * бросается SqlStatementBudgetExceededException.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    // Бюджет не задан
+    public static final int NO_BUDGET = -1;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    @Override
+    public String inspect(String sql) {
+        State state = STATE.get();
+        state.count++;
+        if (state.failFast && state.budget != NO_BUDGET && state.count > state.budget) {
+            throw new SqlStatementBudgetExceededException(
+                    "Превышен бюджет SQL-операторов на запрос: " + state.count + " > " + state.budget
+                            + ", оператор: " + sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Обнуляет счётчик и снимает бюджет текущего потока.
+     */
+    public void reset() {
+        State state = STATE.get();
+        state.count = 0;
+        state.budget = NO_BUDGET;
+        state.failFast = false;
+    }
+
+    public void setBudget(int budget, boolean failFast) {
+        State state = STATE.get();
+        state.budget = budget;
+        state.failFast = failFast;
+    }
+
+    public long getCount() {
+        return STATE.get().count;
+    }
+
+    public int getBudget() {
+        return STATE.get().budget;
+    }
+
+    private static final class State {
+        private long count;
+        private int budget = NO_BUDGET;
+        private boolean failFast;
+    }
+}
@@ -0,0 +1,62 @@
+package src.main.eav.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Записывает число SQL-операторов за HTTP-запрос в метрику eav.sql.statements
+ * с тегами method и uri (шаблон маршрута, как у http.server.requests).
+ * Рост значения при неизменном запросе — признак N+1.
+ * Если запросу назначен бюджет (@SqlStatementBudget) и он превышен, пишется предупреждение.
+ * Операторы, выполненные вне потока запроса (асинхронный экспорт), не учитываются.
+ */
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementMetricsFilter.class);
+
+    static final String METRIC_NAME = "eav.sql.statements";
+
+    private final SqlStatementCounter counter;
+    private final MeterRegistry registry;
+
+    public SqlStatementMetricsFilter(SqlStatementCounter counter, MeterRegistry registry) {
+        this.counter = counter;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        counter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            long count = counter.getCount();
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("SQL-операторы за один HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(count);
+            int budget = counter.getBudget();
+            if (budget != SqlStatementCounter.NO_BUDGET && count > budget) {
+                log.warn("Запрос {} {} выполнил {} SQL-операторов при бюджете {} (возможен N+1)",
+                        request.getMethod(), uri, count, budget);
+            }
+            // Бюджет действует только внутри запроса; число операторов остаётся доступным до следующего
+            counter.setBudget(SqlStatementCounter.NO_BUDGET, false);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package src.main.eav.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Имя атрибута из справочника eav_attribute_definition. Строки создаются и читаются
+ * через EavAttributeDictionary; сущность нужна для подзапросов в спецификациях.
+ */
+@Entity
+@Immutable
+@Table(name = "eav_attribute_definition")
+public class EavAttributeDefinition {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "name", nullable = false, unique = true)
+    private String name;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
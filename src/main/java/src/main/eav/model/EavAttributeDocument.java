@@ -0,0 +1,66 @@
+package src.main.eav.model;
+
+import java.util.Objects;
+
+/**
+ * Элемент денормализованной копии атрибутов сущности (колонка eav_entity.attributes_document, jsonb):
+ * {"name": ..., "value": ..., "type": ...}. Значение хранится в канонической строковой записи,
+ * как в EavAttributeValue.value, поэтому условие на значение проверяется одним сравнением через @>.
+ */
+public class EavAttributeDocument {
+
+    private String name;
+
+    private String value;
+
+    private EavValueType type;
+
+    public EavAttributeDocument() {
+    }
+
+    public EavAttributeDocument(String name, String value, EavValueType type) {
+        this.name = name;
+        this.value = value;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public EavValueType getType() {
+        return type;
+    }
+
+    public void setType(EavValueType type) {
+        this.type = type;
+    }
+
+    // Hibernate сравнивает копию документа при проверке изменений, поэтому равенство — по содержимому
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EavAttributeDocument that = (EavAttributeDocument) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(value, that.value) &&
+                type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, value, type);
+    }
+}
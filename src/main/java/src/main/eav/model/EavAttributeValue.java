@@ -1,21 +1,49 @@
 package src.main.eav.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import src.main.eav.config.HibernateCacheConfig;
+import src.main.eav.dictionary.EavAttributeNameConverter;
+
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ATTRIBUTE_VALUE_REGION)
 public class EavAttributeValue {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eav_attribute_value_seq")
+    @SequenceGenerator(name = "eav_attribute_value_seq", sequenceName = "eav_attribute_value_seq", allocationSize = 50)
     private Long id;
 
-    // Имя атрибута (например, "фио", "телефон", "почта", "описание")
+    // Имя атрибута (например, "фио", "телефон", "почта", "описание").
+    // В строке хранится id имени из справочника eav_attribute_definition
+    @Convert(converter = EavAttributeNameConverter.class)
+    @Column(name = "attribute_id")
     private String attributeName;
 
-    // Значение атрибута (для упрощения хранится как строка)
+    // Тот же столбец числом — для подзапросов к справочнику (поиск по подстроке имени); только для чтения
+    @Column(name = "attribute_id", insertable = false, updatable = false)
+    private Integer attributeId;
+
+    // Значение атрибута в строковом виде (для типизированных значений — каноническая запись)
     private String value;
 
+    // Объявленный тип значения; определяет, какая из типизированных колонок заполнена
+    @Enumerated(EnumType.STRING)
+    private EavValueType valueType;
+
+    private Long longValue;
+
+    private Double doubleValue;
+
+    private Boolean booleanValue;
+
+    private Instant timestampValue;
+
     // Ссылка на сущность, к которой относится атрибут
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "entity_id")
@@ -38,6 +66,26 @@ public class EavAttributeValue {
         return entity;
     }
 
+    public EavValueType getValueType() {
+        return valueType;
+    }
+
+    public Long getLongValue() {
+        return longValue;
+    }
+
+    public Double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public Boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    public Instant getTimestampValue() {
+        return timestampValue;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -54,6 +102,22 @@ public class EavAttributeValue {
         this.entity = entity;
     }
 
+    /**
+     * Устанавливает значение вместе с типом: заполняет колонку, соответствующую типу,
+     * очищает остальные и приводит строковое значение к канонической записи.
+     * При несоответствии значения типу бросает IllegalArgumentException.
+     */
+    public void setTypedValue(EavValueType type, String raw) {
+        EavValueType effectiveType = EavValueType.orDefault(type);
+        Object parsed = effectiveType.parse(raw);
+        this.valueType = effectiveType;
+        this.value = parsed != null ? parsed.toString() : null;
+        this.longValue = parsed instanceof Long ? (Long) parsed : null;
+        this.doubleValue = parsed instanceof Double ? (Double) parsed : null;
+        this.booleanValue = parsed instanceof Boolean ? (Boolean) parsed : null;
+        this.timestampValue = parsed instanceof Instant ? (Instant) parsed : null;
+    }
+
     // Переопределённый equals() без учета поля entity
     @Override
     public boolean equals(Object o) {
@@ -78,6 +142,7 @@ public class EavAttributeValue {
                 "id=" + id +
                 ", attributeName='" + attributeName + '\'' +
                 ", value='" + value + '\'' +
+                ", valueType=" + valueType +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,30 +1,57 @@
 package src.main.eav.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import src.main.eav.config.HibernateCacheConfig;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+// Кэш второго уровня действует, только если он включён (eav.hibernate-cache.enabled, см. HibernateCacheConfig)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ENTITY_REGION)
 public class EavEntity {
 
+    // Идентификаторы выдаются из последовательности блоками (pooled), что позволяет Hibernate
+    // группировать INSERT в JDBC batch; с IDENTITY пакетная вставка отключается
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eav_entity_seq")
+    @SequenceGenerator(name = "eav_entity_seq", sequenceName = "eav_entity_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "type", unique = true, nullable = false)
     private String type;
 
+    // Увеличивается при каждом изменении сущности, её атрибутов или связей; UPDATE с устаревшей версией
+    // не находит строку, и транзакция откатывается с OptimisticLockException вместо потерянного обновления
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "entity", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ENTITY_ATTRIBUTES_REGION)
     private Set<EavAttributeValue> attributes;
 
     @OneToMany(mappedBy = "source", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ENTITY_RELATIONS_REGION)
     private Set<EavRelation> relations;
 
+    // Денормализованная копия атрибутов (jsonb): чтение атрибутов вместе со строкой сущности
+    // и фильтры через @> по GIN-индексу. Источник истины — коллекция attributes;
+    // копия обновляется сервисом при записи и пересобирается EavAttributeDocumentRebuildJob
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "attributes_document")
+    private List<EavAttributeDocument> attributesDocument;
+
     public Long getId() {
         return id;
     }
@@ -33,6 +60,10 @@ public class EavEntity {
         return type;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Set<EavAttributeValue> getAttributes() {
         return attributes;
     }
@@ -41,6 +72,10 @@ public class EavEntity {
         return relations;
     }
 
+    public List<EavAttributeDocument> getAttributesDocument() {
+        return attributesDocument;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -49,6 +84,10 @@ public class EavEntity {
         this.type = type;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public void setAttributes(Set<EavAttributeValue> attributes) {
         this.attributes = attributes;
     }
@@ -57,6 +96,10 @@ public class EavEntity {
         this.relations = relations;
     }
 
+    public void setAttributesDocument(List<EavAttributeDocument> attributesDocument) {
+        this.attributesDocument = attributesDocument;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
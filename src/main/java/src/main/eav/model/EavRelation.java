@@ -2,14 +2,20 @@ package src.main.eav.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import src.main.eav.config.HibernateCacheConfig;
 
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.RELATION_REGION)
 public class EavRelation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eav_relation_seq")
+    @SequenceGenerator(name = "eav_relation_seq", sequenceName = "eav_relation_seq", allocationSize = 50)
     private Long id;
 
     // Тип связи (например, "customer_of", "order_of")
@@ -0,0 +1,70 @@
+package src.main.eav.model;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Тип значения атрибута. Каждому типу соответствует своя колонка в eav_attribute_value,
+ * по которой БД может сравнивать значения и использовать B-tree индекс.
+ */
+public enum EavValueType {
+    TEXT("value"),
+    LONG("longValue"),
+    DOUBLE("doubleValue"),
+    BOOLEAN("booleanValue"),
+    TIMESTAMP("timestampValue");
+
+    // Имя поля EavAttributeValue, в котором хранится значение этого типа
+    private final String attributePath;
+
+    EavValueType(String attributePath) {
+        this.attributePath = attributePath;
+    }
+
+    public String getAttributePath() {
+        return attributePath;
+    }
+
+    /**
+     * Разбирает строковое значение в Java-тип колонки.
+     * При некорректном значении бросает IllegalArgumentException.
+     */
+    public Comparable<?> parse(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String trimmed = raw.trim();
+        switch (this) {
+            case LONG:
+                return Long.valueOf(trimmed);
+            case DOUBLE:
+                return Double.valueOf(trimmed);
+            case BOOLEAN:
+                if (!"true".equalsIgnoreCase(trimmed) && !"false".equalsIgnoreCase(trimmed)) {
+                    throw new IllegalArgumentException("Ожидалось true или false: " + raw);
+                }
+                return Boolean.valueOf(trimmed);
+            case TIMESTAMP:
+                try {
+                    // Допускается дата без времени — начало суток по UTC
+                    return trimmed.length() == 10
+                            ? LocalDate.parse(trimmed).atStartOfDay().toInstant(ZoneOffset.UTC)
+                            : OffsetDateTime.parse(trimmed).toInstant();
+                } catch (DateTimeException e) {
+                    throw new IllegalArgumentException("Ожидалась дата в формате ISO-8601: " + raw, e);
+                }
+            default:
+                return raw;
+        }
+    }
+
+    /**
+     * Возвращает тип, а для значений, сохранённых до появления типизации, — TEXT.
+     */
+    public static EavValueType orDefault(EavValueType type) {
+        return type != null ? type : TEXT;
+    }
+}
@@ -0,0 +1,82 @@
+package src.main.eav.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Clock;
+
+/**
+ * Чтение своих записей при чтении с реплик: после изменяющего запроса (POST, PUT, PATCH, DELETE)
+ * клиент получает cookie со временем, до которого его запросы читают с основной базы. Пока окно
+ * не истекло, реплика, ещё не получившая запись, не вернёт клиенту старые данные.
+ * Время хранится в самой cookie, поэтому окно действует на любом узле, куда попадёт следующий запрос.
+ * При окне 0 фильтр ничего не делает.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final String cookieName;
+    private final long windowMs;
+    private final Clock clock;
+
+    public ReadYourWritesFilter(String cookieName, long windowMs, Clock clock) {
+        this.cookieName = cookieName;
+        this.windowMs = windowMs;
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return windowMs <= 0;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = clock.millis();
+        boolean write = isWrite(request);
+        if (write) {
+            // Ставится до обработки: после неё ответ может быть уже отправлен
+            Cookie cookie = new Cookie(cookieName, String.valueOf(now + windowMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (windowMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (!write && stickyUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Boolean previous = ReplicaRoutingContext.requirePrimary();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingContext.restore(previous);
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method) || "DELETE".equals(method);
+    }
+
+    private long stickyUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,53 @@
+package src.main.eav.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Реплика для чтения: свой пул соединений и состояние по последней проверке ReplicaHealthChecker.
+ * До первой проверки реплика считается недоступной, и чтения идут на основную базу.
+ */
+public class Replica {
+
+    private static final Logger log = LoggerFactory.getLogger(Replica.class);
+
+    private final HikariDataSource dataSource;
+    private volatile boolean healthy;
+    private volatile long lagMs;
+
+    public Replica(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return dataSource.getPoolName();
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    void markUp(long lagMs) {
+        this.lagMs = lagMs;
+        if (!healthy) {
+            log.info("Реплика {} доступна для чтения, отставание {} мс", getName(), lagMs);
+            healthy = true;
+        }
+    }
+
+    void markDown(String reason) {
+        if (healthy) {
+            log.warn("Реплика {} исключена из чтения: {}", getName(), reason);
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package src.main.eav.replica;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Периодически проверяет реплики: реплика участвует в чтении, если отвечает на запрос и,
+ * при заданном eav.replica.max-lag-ms, отстаёт от основной базы не больше него.
+ * Отставание считается нулевым, если реплика применила весь полученный WAL: иначе при простое основной базы
+ * время последней применённой транзакции росло бы без реального отставания. Но весь полученный WAL применён
+ * и у реплики, потерявшей связь с основной базой, поэтому реплика без процесса приёма WAL
+ * (нет строки в pg_stat_wal_receiver) исключается из чтения. Зависшее соединение приёмник закрывает
+ * сам по wal_receiver_timeout на реплике.
+ * <p>
+ * Метрики: eav.replica.healthy и eav.replica.lag по репликам, eav.replica.fallbacks — чтения,
+ * ушедшие на основную базу из-за отсутствия доступных реплик.
+ */
+@Component
+@ConditionalOnProperty(name = "eav.replica.enabled", havingValue = "true")
+public class ReplicaHealthChecker {
+
+    static final String HEALTH_QUERY = "SELECT pg_is_in_recovery(), "
+            + "EXISTS (SELECT 1 FROM pg_stat_wal_receiver), COALESCE(CASE "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, 0)";
+
+    private final ReplicaPool replicaPool;
+    private final long maxLagMs;
+    private final int timeoutSeconds;
+
+    @Autowired
+    public ReplicaHealthChecker(ReplicaPool replicaPool, MeterRegistry registry,
+                                @Value("${eav.replica.max-lag-ms:0}") long maxLagMs,
+                                @Value("${eav.replica.health-check-timeout-seconds:2}") int timeoutSeconds) {
+        this.replicaPool = replicaPool;
+        this.maxLagMs = maxLagMs;
+        this.timeoutSeconds = timeoutSeconds;
+        for (Replica replica : replicaPool.getReplicas()) {
+            Gauge.builder("eav.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                    .description("Реплика участвует в чтении (1) или исключена (0)")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+            Gauge.builder("eav.replica.lag", replica, Replica::getLagMs)
+                    .description("Отставание реплики при последней проверке")
+                    .baseUnit("milliseconds")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+        }
+        FunctionCounter.builder("eav.replica.fallbacks", replicaPool, ReplicaPool::getFallbackCount)
+                .description("Read-only транзакции, выполненные на основной базе из-за отсутствия доступных реплик")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${eav.replica.health-check-interval-ms:5000}")
+    public void checkAll() {
+        for (Replica replica : replicaPool.getReplicas()) {
+            check(replica);
+        }
+    }
+
+    void check(Replica replica) {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeoutSeconds);
+            try (ResultSet rs = statement.executeQuery(HEALTH_QUERY)) {
+                rs.next();
+                boolean inRecovery = rs.getBoolean(1);
+                boolean receiving = rs.getBoolean(2);
+                long lagMs = inRecovery ? rs.getLong(3) : 0;
+                if (inRecovery && !receiving) {
+                    replica.markDown("нет соединения с основной базой (pg_stat_wal_receiver пуст)");
+                } else if (maxLagMs > 0 && lagMs > maxLagMs) {
+                    replica.markDown("отставание " + lagMs + " мс больше eav.replica.max-lag-ms=" + maxLagMs);
+                } else {
+                    replica.markUp(lagMs);
+                }
+            }
+        } catch (SQLException e) {
+            replica.markDown(e.getMessage());
+        }
+    }
+}
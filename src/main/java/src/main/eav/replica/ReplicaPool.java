@@ -0,0 +1,64 @@
+package src.main.eav.replica;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Набор реплик для чтения с выбором по кругу среди доступных. Соединение с реплики, которая
+ * не ответила, не возвращается: реплика исключается до следующей удачной проверки, а соединение
+ * берётся со следующей. Если доступных реплик нет, вызывающий получает null и читает с основной базы.
+ */
+public class ReplicaPool implements DisposableBean {
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaPool(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    /**
+     * @return соединение с одной из доступных реплик или null, если доступных нет
+     */
+    public Connection getConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size == 0 ? 1 : size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.isHealthy()) {
+                continue;
+            }
+            try {
+                return replica.getDataSource().getConnection();
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        fallbacks.increment();
+        return null;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return сколько раз чтение ушло на основную базу из-за отсутствия доступных реплик
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void destroy() {
+        for (Replica replica : replicas) {
+            replica.getDataSource().close();
+        }
+    }
+}
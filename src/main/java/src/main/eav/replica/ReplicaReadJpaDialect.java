@@ -0,0 +1,31 @@
+package src.main.eav.replica;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only транзакции, которые могут читать с реплики, не пополняют кэш второго уровня:
+ * сущность, прочитанная с отстающей реплики сразу после записи и сброса кэша, вернула бы в общий кэш
+ * прежнее состояние, и его видели бы и чтения с основной базы. Чтение из кэша при этом не отключается.
+ * Реплика или основная база выбирается только при первом операторе, поэтому решение принимается
+ * по признаку ReplicaRoutingContext на начало транзакции.
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        boolean replicaRead = definition.isReadOnly() && !ReplicaRoutingContext.isPrimaryRequired();
+        // EntityManager может пережить транзакцию (open-in-view), поэтому режим выставляется при каждом начале
+        entityManager.unwrap(Session.class)
+                .setCacheStoreMode(replicaRead ? CacheStoreMode.BYPASS : CacheStoreMode.USE);
+        return transactionData;
+    }
+}
@@ -0,0 +1,50 @@
+package src.main.eav.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Признак текущего потока «читать только с основной базы» — для чтения собственных записей
+ * (см. ReadYourWritesFilter). Проверяется при получении соединения для read-only транзакции.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    /**
+     * Выполняет действие так, что все его read-only транзакции читают с основной базы.
+     * Транзакция должна начинаться внутри действия: уже начатая транзакция тоже переключится
+     * на основную базу, но кэш второго уровня пополнять не будет (ReplicaReadJpaDialect).
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = requirePrimary();
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * @return предыдущее значение признака — для restore
+     */
+    static Boolean requirePrimary() {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restore(Boolean previous) {
+        if (previous == null) {
+            PRIMARY_REQUIRED.remove();
+        } else {
+            PRIMARY_REQUIRED.set(previous);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package src.main.eav.replica;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений для read-only транзакций: реплика из ReplicaPool, а если доступных реплик нет
+ * или поток требует основную базу (ReplicaRoutingContext) — основная база.
+ * Подставляется как readOnlyDataSource в LazyConnectionDataSourceProxy (см. ReplicaRoutingConfig),
+ * поэтому запрашивается только для транзакций, помеченных readOnly, и только при первом операторе.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaPool replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+        this.primary = primary;
+        this.replicaPool = replicaPool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaRoutingContext.isPrimaryRequired()) {
+            Connection connection = replicaPool.getConnection();
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return primary.getConnection();
+    }
+
+    // Учётные данные реплик задаются в eav.replica.*, поэтому соединение с явными учётными данными — с основной базы
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
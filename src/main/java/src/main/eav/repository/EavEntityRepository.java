@@ -1,8 +1,61 @@
 package src.main.eav.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import src.main.eav.config.HibernateCacheConfig;
 import src.main.eav.model.EavEntity;
 
-public interface EavEntityRepository extends JpaSpecificationExecutor<EavEntity>, JpaRepository<EavEntity, Long> {
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface EavEntityRepository extends JpaSpecificationExecutor<EavEntity>, JpaRepository<EavEntity, Long>,
+        EavEntityRepositoryCustom {
+
+    // Результат кэшируется в кэше запросов Hibernate (если включён кэш второго уровня, см. HibernateCacheConfig):
+    // хранятся только id, сами сущности берутся из региона сущностей; любая запись в eav_entity
+    // делает сохранённые результаты устаревшими
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.BY_TYPE_QUERY_REGION)
+    })
+    List<EavEntity> findAllByType(String type);
+
+    // Коллекции догружаются отдельными запросами, чтобы не получить декартово произведение attributes x relations.
+    // id передаются одним параметром-массивом (array_has, см. ArrayFunctionContributor): в отличие от in :ids,
+    // список любой длины не упирается в ограничение числа параметров запроса
+    @Query("select e from EavEntity e left join fetch e.attributes where array_has(:ids, e.id) = true")
+    List<EavEntity> findAllWithAttributesByIdIn(@Param("ids") Long[] ids);
+
+    @Query("select e from EavEntity e left join fetch e.relations where array_has(:ids, e.id) = true")
+    List<EavEntity> findAllWithRelationsByIdIn(@Param("ids") Long[] ids);
+
+    @Query("select e from EavEntity e where array_has(:ids, e.id) = true")
+    List<EavEntity> findAllByIdIn(@Param("ids") Long[] ids);
+
+    // Потоковое чтение через серверный курсор: драйвер получает строки порциями по fetch size
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<EavEntity> streamAllBy();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<EavEntity> streamByType(String type);
+
+    @Query("select max(e.id) from EavEntity e")
+    Long findMaxId();
+
+    // Пересобирает jsonb-копию атрибутов из eav_attribute_value для сущностей с id в (fromId, toId]
+    @Modifying
+    @Query(value = "update {h-schema}eav_entity e set attributes_document = coalesce(("
+            + "select jsonb_agg(jsonb_build_object('name', d.name, 'value', a.value, "
+            + "'type', coalesce(a.value_type, 'TEXT')) order by a.id) "
+            + "from {h-schema}eav_attribute_value a "
+            + "left join {h-schema}eav_attribute_definition d on d.id = a.attribute_id "
+            + "where a.entity_id = e.id), cast('[]' as jsonb)) "
+            + "where e.id > :fromId and e.id <= :toId", nativeQuery = true)
+    int rebuildAttributesDocuments(@Param("fromId") long fromId, @Param("toId") long toId);
 }
@@ -0,0 +1,44 @@
+package src.main.eav.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import src.main.eav.model.EavEntity;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+
+import java.util.List;
+
+public interface EavEntityRepositoryCustom {
+
+    /**
+     * Возвращает только идентификаторы сущностей, подходящих под спецификацию,
+     * в порядке, заданном самой спецификацией. limit <= 0 означает "без ограничения".
+     */
+    List<Long> findIds(Specification<EavEntity> specification, int limit);
+
+    /**
+     * То же, что findIds, но возвращает проекцию (id, type) — для списков, которым
+     * не нужны атрибуты и связи: одна выборка из eav_entity без догрузки коллекций.
+     */
+    List<EavEntitySummary> findSummaries(Specification<EavEntity> specification, int limit);
+
+    /**
+     * Полнотекстовый поиск по search_vector (GIN-индекс idx_eav_entity_search_vector): сущности,
+     * подходящие под запрос в синтаксисе websearch_to_tsquery, по убыванию релевантности, при равной — по id.
+     * afterId == null — первая страница, иначе сущности строго после (afterRank, afterId).
+     */
+    List<EavEntitySearchHit> search(String query, Float afterRank, Long afterId, int limit);
+
+    /**
+     * Обходит граф связей от rootId на глубину до maxDepth (только связи relationType, если он задан)
+     * одним рекурсивным запросом. Каждая сущность возвращается с минимальной глубиной и своими
+     * исходящими связями, если её глубина меньше maxDepth. Пустой список — корневой сущности нет.
+     */
+    List<EavGraphRow> findGraph(Long rootId, int maxDepth, String relationType);
+
+    /**
+     * Отсоединяет сущность (вместе с каскадными коллекциями) от контекста персистентности,
+     * чтобы при потоковой обработке он не рос вместе с количеством прочитанных строк.
+     */
+    void detach(EavEntity entity);
+}
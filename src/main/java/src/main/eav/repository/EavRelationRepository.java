@@ -0,0 +1,32 @@
+package src.main.eav.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import src.main.eav.model.EavRelation;
+import src.main.eav.repository.projection.EavIncomingRelation;
+
+import java.util.List;
+
+/**
+ * Запросы по входящим связям (target_id). Обе операции идут по индексу idx_eav_relation_target (target_id, id).
+ */
+public interface EavRelationRepository extends JpaRepository<EavRelation, Long> {
+
+    // Keyset-пагинация по id связи: стоимость не зависит от номера страницы
+    @Query("select new src.main.eav.repository.projection.EavIncomingRelation(r.id, r.relationType, s.id, s.type) "
+            + "from EavRelation r join r.source s "
+            + "where r.target.id = :targetId and r.id > :afterId order by r.id")
+    List<EavIncomingRelation> findIncoming(@Param("targetId") Long targetId, @Param("afterId") Long afterId,
+                                           Limit limit);
+
+    /*
+     * Входящие связи от других сущностей удаляются одним оператором без загрузки в контекст.
+     * Петли (source = target) не трогаются: их удаляет каскад вместе с исходящими связями сущности.
+     */
+    @Modifying
+    @Query("delete from EavRelation r where r.target.id = :targetId and r.source.id <> :targetId")
+    int deleteIncoming(@Param("targetId") Long targetId);
+}
@@ -0,0 +1,148 @@
+package src.main.eav.repository.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+import src.main.eav.model.EavEntity;
+import src.main.eav.repository.EavEntityRepositoryCustom;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class EavEntityRepositoryCustomImpl implements EavEntityRepositoryCustom {
+
+    /*
+     * reach — пары (сущность, глубина), достижимые из корня. UNION (а не UNION ALL) отбрасывает
+     * повторно найденные пары, поэтому циклы и сходящиеся пути не размножают строки: их не больше,
+     * чем сущностей на глубину, а рекурсия останавливается на :maxDepth.
+     * Затем каждая сущность берётся с минимальной глубиной и соединяется со своими исходящими связями.
+     */
+    private static final String GRAPH_QUERY = "with recursive reach(entity_id, depth) as ("
+            + " select cast(:rootId as bigint), 0"
+            + " union"
+            + " select r.target_id, reach.depth + 1"
+            + " from reach join {h-schema}eav_relation r on r.source_id = reach.entity_id"
+            + " where reach.depth < :maxDepth and r.target_id is not null%1$s"
+            + "), nodes as ("
+            + " select entity_id, min(depth) as depth from reach group by entity_id"
+            + ")"
+            + " select n.entity_id, e.type, n.depth, r.id, r.relation_type, r.target_id"
+            + " from nodes n"
+            + " join {h-schema}eav_entity e on e.id = n.entity_id"
+            + " left join {h-schema}eav_relation r on r.source_id = n.entity_id"
+            + " and n.depth < :maxDepth and r.target_id is not null%1$s"
+            + " order by n.depth, n.entity_id, r.id";
+
+    private static final String RELATION_TYPE_CONDITION = " and r.relation_type = :relationType";
+
+    /*
+     * Совпадения отбираются по GIN-индексу, ts_rank считается только для них, а LIMIT позволяет
+     * планировщику держать в сортировке лишь верхние строки. Курсор сравнивается с тем же выражением
+     * ts_rank, что и сортировка, поэтому страницы не пересекаются и не теряют строк с равной релевантностью.
+     */
+    private static final String SEARCH_QUERY = "select e.id, e.type, ts_rank(e.search_vector, q.query) as rank"
+            + " from {h-schema}eav_entity e, websearch_to_tsquery('simple', :query) q(query)"
+            + " where e.search_vector @@ q.query%s"
+            + " order by rank desc, e.id"
+            + " limit :limit";
+
+    private static final String SEARCH_AFTER_CONDITION = " and (ts_rank(e.search_vector, q.query) < :afterRank"
+            + " or (ts_rank(e.search_vector, q.query) = :afterRank and e.id > :afterId))";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIds(Specification<EavEntity> specification, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<EavEntity> root = query.from(EavEntity.class);
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        query.select(root.get("id"));
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public List<EavEntitySummary> findSummaries(Specification<EavEntity> specification, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EavEntitySummary> query = cb.createQuery(EavEntitySummary.class);
+        Root<EavEntity> root = query.from(EavEntity.class);
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        query.select(cb.construct(EavEntitySummary.class, root.get("id"), root.get("type")));
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        TypedQuery<EavEntitySummary> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<EavEntitySearchHit> search(String query, Float afterRank, Long afterId, int limit) {
+        boolean after = afterId != null;
+        Query nativeQuery = entityManager.createNativeQuery(String.format(SEARCH_QUERY, after ? SEARCH_AFTER_CONDITION : ""))
+                .setParameter("query", query)
+                .setParameter("limit", limit);
+        if (after) {
+            nativeQuery.setParameter("afterRank", afterRank)
+                    .setParameter("afterId", afterId);
+        }
+        List<Object[]> rows = nativeQuery.getResultList();
+        return rows.stream()
+                .map(row -> new EavEntitySearchHit(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        ((Number) row[2]).floatValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<EavGraphRow> findGraph(Long rootId, int maxDepth, String relationType) {
+        String sql = String.format(GRAPH_QUERY, relationType != null ? RELATION_TYPE_CONDITION : "");
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("rootId", rootId)
+                .setParameter("maxDepth", maxDepth);
+        if (relationType != null) {
+            query.setParameter("relationType", relationType);
+        }
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new EavGraphRow(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        ((Number) row[2]).intValue(),
+                        row[3] != null ? ((Number) row[3]).longValue() : null,
+                        (String) row[4],
+                        row[5] != null ? ((Number) row[5]).longValue() : null))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void detach(EavEntity entity) {
+        entityManager.detach(entity);
+    }
+}
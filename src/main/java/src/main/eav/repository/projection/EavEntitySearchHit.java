@@ -0,0 +1,18 @@
+package src.main.eav.repository.projection;
+
+/**
+ * Сущность, найденная полнотекстовым поиском, с релевантностью ts_rank.
+ */
+public class EavEntitySearchHit extends EavEntitySummary {
+
+    private final float rank;
+
+    public EavEntitySearchHit(Long id, String type, float rank) {
+        super(id, type);
+        this.rank = rank;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+}
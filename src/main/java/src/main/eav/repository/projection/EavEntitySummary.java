@@ -0,0 +1,25 @@
+package src.main.eav.repository.projection;
+
+/**
+ * Проекция сущности без коллекций: только колонки eav_entity.
+ * Строится в запросе через конструктор (CriteriaBuilder.construct), экземпляры EavEntity не создаются.
+ */
+public class EavEntitySummary {
+
+    private final Long id;
+
+    private final String type;
+
+    public EavEntitySummary(Long id, String type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,53 @@
+package src.main.eav.repository.projection;
+
+/**
+ * Строка результата обхода графа связей: достигнутая сущность с минимальной глубиной
+ * и одна из её исходящих связей, по которой обход продолжается (поля связи null, если таких нет).
+ */
+public class EavGraphRow {
+
+    private final Long entityId;
+
+    private final String type;
+
+    private final int depth;
+
+    private final Long relationId;
+
+    private final String relationType;
+
+    private final Long targetId;
+
+    public EavGraphRow(Long entityId, String type, int depth, Long relationId, String relationType, Long targetId) {
+        this.entityId = entityId;
+        this.type = type;
+        this.depth = depth;
+        this.relationId = relationId;
+        this.relationType = relationType;
+        this.targetId = targetId;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public Long getRelationId() {
+        return relationId;
+    }
+
+    public String getRelationType() {
+        return relationType;
+    }
+
+    public Long getTargetId() {
+        return targetId;
+    }
+}
@@ -0,0 +1,38 @@
+package src.main.eav.repository.projection;
+
+/**
+ * Входящая связь сущности вместе с id и типом источника, без загрузки EavRelation и EavEntity.
+ */
+public class EavIncomingRelation {
+
+    private final Long id;
+
+    private final String relationType;
+
+    private final Long sourceId;
+
+    private final String sourceType;
+
+    public EavIncomingRelation(Long id, String relationType, Long sourceId, String sourceType) {
+        this.id = id;
+        this.relationType = relationType;
+        this.sourceId = sourceId;
+        this.sourceType = sourceType;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRelationType() {
+        return relationType;
+    }
+
+    public Long getSourceId() {
+        return sourceId;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+}
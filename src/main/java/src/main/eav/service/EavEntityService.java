@@ -2,8 +2,13 @@ package src.main.eav.service;
 
 import src.main.eav.controller.filter.EavEntityFilter;
 import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavIncomingRelationPageDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EavEntityService {
     EavEntityDto findById(Long id);
@@ -14,9 +19,21 @@ public interface EavEntityService {
 
     List<EavEntityDto> findAll(EavEntityFilter filter);
 
+    EavEntityPageDto findPage(EavEntityFilter filter);
+
+    EavIncomingRelationPageDto findIncoming(Long id, Long after, Integer limit);
+
+    EavGraphDto findGraph(Long id, Integer depth, String relationType);
+
+    void exportByType(String type, Consumer<EavEntityDto> consumer);
+
     EavEntityDto save(EavEntityDto dto);
 
+    List<Long> saveAll(List<EavEntityDto> dtos);
+
     EavEntityDto update(Long id, EavEntityDto dto);
 
+    EavEntityDto patch(Long id, EavEntityPatchDto patch);
+
     void deleteEntity(Long id);
 }
\ No newline at end of file
@@ -1,37 +1,121 @@
 package src.main.eav.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.main.eav.cluster.EavCacheInvalidationPublisher;
+import src.main.eav.config.CacheConfig;
 import src.main.eav.dao.EavEntityDaoService;
+import src.main.eav.dto.EavAttributeValueDto;
 import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavGraphEdgeDto;
+import src.main.eav.dto.EavGraphNodeDto;
+import src.main.eav.dto.EavIncomingRelationPageDto;
+import src.main.eav.dto.EavRelationDto;
 import src.main.eav.dto.mapper.EavEntityMapper;
 import src.main.eav.model.EavAttributeValue;
 import src.main.eav.model.EavEntity;
 import src.main.eav.model.EavRelation;
+import src.main.eav.replica.ReplicaRoutingContext;
+import src.main.eav.error.BadRequestException;
+import src.main.eav.error.ConcurrentUpdateException;
+import src.main.eav.error.PreconditionFailedException;
 import src.main.eav.error.ResourceNotFoundException;
 import src.main.eav.service.EavEntityService;
+import src.main.eav.controller.filter.EavEntityCursor;
+import src.main.eav.controller.filter.EavEntitySearchCursor;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.controller.filter.EavEntityInclude;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+import src.main.eav.repository.projection.EavIncomingRelation;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("eav.service")
 public class EavEntityServiceImpl implements EavEntityService {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int DEFAULT_GRAPH_DEPTH = 1;
+
+    static final int MAX_GRAPH_DEPTH = 10;
+
     private final EavEntityDaoService daoService;
+    private final TransactionTemplate transactionTemplate;
+    // Для findById: транзакция начинается внутри ReplicaRoutingContext.onPrimary, а не прокси @Transactional
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    // Сообщает другим узлам об изменённых сущностях; сообщение уходит вместе с коммитом транзакции записи
+    private final EavCacheInvalidationPublisher cacheInvalidation;
+    private final Timer mappingTimer;
+    private final Counter updateConflicts;
+    // Атрибуты в ответах строятся из jsonb-копии (attributes_document), а не из строк eav_attribute_value
+    private final boolean documentEnabled;
+    // Сколько раз изменение без If-Match применяется заново после конфликта версий
+    private final int updateAttempts;
 
     @Autowired
-    public EavEntityServiceImpl(EavEntityDaoService daoService) {
+    public EavEntityServiceImpl(EavEntityDaoService daoService, MeterRegistry registry,
+                                TransactionTemplate transactionTemplate,
+                                EavCacheInvalidationPublisher cacheInvalidation,
+                                @Value("${eav.document.enabled:false}") boolean documentEnabled,
+                                @Value("${eav.update.max-attempts:3}") int updateAttempts) {
         this.daoService = daoService;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.cacheInvalidation = cacheInvalidation;
+        this.documentEnabled = documentEnabled;
+        this.updateAttempts = updateAttempts;
+        this.mappingTimer = Timer.builder("eav.dto.mapping")
+                .description("Маппинг сущности в DTO, включая догрузку ленивых коллекций")
+                .register(registry);
+        this.updateConflicts = Counter.builder("eav.update.conflicts")
+                .description("Изменения, повторённые после конфликта версий")
+                .register(registry);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.ENTITIES_CACHE, key = "#id")
     public EavEntityDto findById(Long id) {
-        EavEntity entity = daoService.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Сущность не найдена, id: " + id));
-        return EavEntityMapper.entityToDto(entity);
+        // Результат попадает в кэш DTO, общий для всех чтений: с отстающей реплики сразу после записи
+        // и сброса кэша в него вернулось бы прежнее состояние, поэтому сущность читается с основной базы.
+        // Признак выставляется до начала транзакции: по нему она решает, пополнять ли кэш второго уровня
+        return ReplicaRoutingContext.onPrimary(() -> readOnlyTransactionTemplate.execute(status -> {
+            EavEntity entity = daoService.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Сущность не найдена, id: " + id));
+            return toDto(entity);
+        }));
     }
 
     @Override
@@ -39,7 +123,7 @@ public class EavEntityServiceImpl implements EavEntityService {
     public List<EavEntityDto> findByType(String type) {
         List<EavEntity> entities = daoService.findByType(type);
         return entities.stream()
-                .map(EavEntityMapper::entityToDto)
+                .map(this::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -48,60 +132,435 @@ public class EavEntityServiceImpl implements EavEntityService {
     public List<EavEntityDto> findAll() {
         List<EavEntity> entities = daoService.findAll();
         return entities.stream()
-                .map(EavEntityMapper::entityToDto)
+                .map(this::toDto)
                 .collect(Collectors.toList());
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<EavEntityDto> findAll(EavEntityFilter filter) {
+        Set<EavEntityInclude> includes = filter.getIncludes();
+        if (includes.isEmpty()) {
+            // Нужны только id и type: проекция одним запросом, сущности и коллекции не загружаются
+            return daoService.findSummaries(filter).stream()
+                    .map(EavEntityMapper::summaryToDto)
+                    .collect(Collectors.toList());
+        }
         List<EavEntity> entities = daoService.findAll(filter);
         return entities.stream()
-                .map(EavEntityMapper::entityToDto)
+                .map(entity -> toDto(entity, includes))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public EavEntityPageDto findPage(EavEntityFilter filter) {
+        filter.setLimit(pageSize(filter.getLimit()));
+
+        Set<EavEntityInclude> includes = filter.getIncludes();
+        if (filter.isFullText()) {
+            return findSearchPage(filter, includes);
+        }
+        EavEntityPageDto page = new EavEntityPageDto();
+        if (includes.isEmpty()) {
+            Slice<EavEntitySummary> slice = daoService.findSummaryPage(filter);
+            page.setItems(slice.getContent().stream()
+                    .map(EavEntityMapper::summaryToDto)
+                    .collect(Collectors.toList()));
+            if (slice.hasNext()) {
+                EavEntitySummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                page.setNextCursor(new EavEntityCursor(last.getType(), last.getId()).encode());
+            }
+            return page;
+        }
+
+        Slice<EavEntity> slice = daoService.findPage(filter);
+        page.setItems(slice.getContent().stream()
+                .map(entity -> toDto(entity, includes))
+                .collect(Collectors.toList()));
+        if (slice.hasNext()) {
+            EavEntity last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            page.setNextCursor(new EavEntityCursor(last.getType(), last.getId()).encode());
+        }
+        return page;
+    }
+
+    /**
+     * Страница полнотекстового поиска: порядок и курсор задаёт ранжированный запрос,
+     * сущности с запрошенными коллекциями догружаются по его id в том же порядке.
+     */
+    private EavEntityPageDto findSearchPage(EavEntityFilter filter, Set<EavEntityInclude> includes) {
+        Slice<EavEntitySearchHit> slice = daoService.findSearchPage(filter);
+        EavEntityPageDto page = new EavEntityPageDto();
+        if (includes.isEmpty()) {
+            page.setItems(slice.getContent().stream()
+                    .map(EavEntityMapper::summaryToDto)
+                    .collect(Collectors.toList()));
+        } else {
+            List<Long> ids = slice.getContent().stream()
+                    .map(EavEntitySearchHit::getId)
+                    .collect(Collectors.toList());
+            page.setItems(daoService.findAllById(ids, includes).stream()
+                    .map(entity -> toDto(entity, includes))
+                    .collect(Collectors.toList()));
+        }
+        if (slice.hasNext()) {
+            EavEntitySearchHit last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            page.setNextCursor(new EavEntitySearchCursor(last.getRank(), last.getId()).encode());
+        }
+        return page;
+    }
+
+    /**
+     * Связи, которые ведут в сущность из других сущностей, страницами в порядке id связи.
+     * Существование сущности проверяется только для пустой страницы, чтобы отличить "нет связей" от 404.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public EavIncomingRelationPageDto findIncoming(Long id, Long after, Integer limit) {
+        Slice<EavIncomingRelation> slice = daoService.findIncoming(id, after, pageSize(limit));
+        if (!slice.hasContent() && !daoService.existsById(id)) {
+            throw new ResourceNotFoundException("Сущность не найдена, id: " + id);
+        }
+        EavIncomingRelationPageDto page = new EavIncomingRelationPageDto();
+        page.setItems(slice.getContent().stream()
+                .map(EavEntityMapper::incomingRelationToDto)
+                .collect(Collectors.toList()));
+        if (slice.hasNext()) {
+            page.setNextCursor(String.valueOf(slice.getContent().get(slice.getNumberOfElements() - 1).getId()));
+        }
+        return page;
+    }
 
+    /**
+     * Подграф, достижимый из сущности по исходящим связям не глубже depth, — одним запросом к БД.
+     * Каждая сущность входит в подграф один раз, даже если до неё ведут несколько путей или цикл.
+     */
     @Override
+    @Transactional(readOnly = true)
+    public EavGraphDto findGraph(Long id, Integer depth, String relationType) {
+        int maxDepth;
+        if (depth == null) {
+            maxDepth = DEFAULT_GRAPH_DEPTH;
+        } else if (depth < 1) {
+            throw new BadRequestException("Глубина обхода должна быть положительной: " + depth);
+        } else {
+            maxDepth = Math.min(depth, MAX_GRAPH_DEPTH);
+        }
+        String type = relationType != null && !relationType.isBlank() ? relationType : null;
+
+        List<EavGraphRow> rows = daoService.findGraph(id, maxDepth, type);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Сущность не найдена, id: " + id);
+        }
+
+        EavGraphDto graph = new EavGraphDto();
+        graph.setRootId(id);
+        graph.setDepth(maxDepth);
+        // Строки упорядочены по глубине и id сущности; строк у сущности столько, сколько у неё исходящих связей
+        Map<Long, EavGraphNodeDto> nodes = new LinkedHashMap<>();
+        for (EavGraphRow row : rows) {
+            nodes.computeIfAbsent(row.getEntityId(), entityId -> {
+                EavGraphNodeDto node = new EavGraphNodeDto();
+                node.setId(entityId);
+                node.setType(row.getType());
+                node.setDepth(row.getDepth());
+                return node;
+            });
+            if (row.getRelationId() != null) {
+                EavGraphEdgeDto edge = new EavGraphEdgeDto();
+                edge.setId(row.getRelationId());
+                edge.setSourceId(row.getEntityId());
+                edge.setTargetId(row.getTargetId());
+                edge.setRelationType(row.getRelationType());
+                graph.getEdges().add(edge);
+            }
+        }
+        graph.getNodes().addAll(nodes.values());
+        return graph;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportByType(String type, Consumer<EavEntityDto> consumer) {
+        // Каждая сущность преобразуется и передаётся потребителю сразу, список DTO не накапливается
+        daoService.forEachByType(type, entity -> consumer.accept(toDto(entity)));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ENTITIES_CACHE, key = "#dto.id", condition = "#dto.id != null")
     @Transactional
     public EavEntityDto save(EavEntityDto dto) {
         // Преобразование DTO в сущность
         EavEntity entity = EavEntityMapper.dtoToEntity(dto);
         // Добавление атрибутов и связей в сущность
-        addAttributesAndRelations(entity, dto);
+        addAttributesAndRelations(entity, dto, resolveTargets(dto.getRelations()));
+        syncAttributesDocument(entity);
         EavEntity savedEntity = daoService.save(entity);
-        return EavEntityMapper.entityToDto(savedEntity);
+        cacheInvalidation.publish(Collections.singletonList(savedEntity.getId()));
+        return writtenToDto(savedEntity);
     }
 
+    /**
+     * Сохраняет порцию сущностей в одной транзакции. INSERT-ы группируются Hibernate
+     * в JDBC batch при сбросе контекста, поэтому возвращаются только id без маппинга в DTO.
+     */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.ENTITIES_CACHE, allEntries = true, condition = "#dtos.?[id != null].size() > 0")
     @Transactional
+    public List<Long> saveAll(List<EavEntityDto> dtos) {
+        // Цели связей всей порции разрешаются одним запросом
+        Map<Long, EavEntity> targets = resolveTargets(dtos.stream()
+                .filter(dto -> dto.getRelations() != null)
+                .flatMap(dto -> dto.getRelations().stream())
+                .collect(Collectors.toList()));
+        List<EavEntity> entities = dtos.stream()
+                .map(dto -> {
+                    EavEntity entity = EavEntityMapper.dtoToEntity(dto);
+                    addAttributesAndRelations(entity, dto, targets);
+                    syncAttributesDocument(entity);
+                    return entity;
+                })
+                .collect(Collectors.toList());
+        List<Long> ids = daoService.saveAll(entities).stream()
+                .map(EavEntity::getId)
+                .collect(Collectors.toList());
+        cacheInvalidation.publish(ids);
+        return ids;
+    }
+
+    /**
+     * Добавляет атрибуты и связи и меняет тип. Если dto.version задана (If-Match), изменение применяется
+     * только к этой версии сущности, иначе при конфликте с параллельной записью повторяется, см. writeWithRetry.
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ENTITIES_CACHE, key = "#id")
     public EavEntityDto update(Long id, EavEntityDto dto) {
-        EavEntity entity = daoService.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Сущность не найдена, id: " + id));
+        return writeWithRetry(id, dto.getVersion(), () -> {
+            EavEntity entity = findForWrite(id, dto.getVersion());
 
-        // Обновление базовых полей
-        if (dto.getType() != null) {
-            entity.setType(dto.getType());
-        }
-        // Добавление новых атрибутов и связей через единый метод
-        addAttributesAndRelations(entity, dto);
-        EavEntity updatedEntity = daoService.edit(entity);
-        return EavEntityMapper.entityToDto(updatedEntity);
+            // Обновление базовых полей
+            if (dto.getType() != null) {
+                entity.setType(dto.getType());
+            }
+            // Добавление новых атрибутов и связей через единый метод
+            addAttributesAndRelations(entity, dto, resolveTargets(dto.getRelations()));
+            syncAttributesDocument(entity);
+            EavEntity updatedEntity = daoService.edit(entity);
+            cacheInvalidation.publish(Collections.singletonList(id));
+            return writtenToDto(updatedEntity);
+        });
     }
 
+    /**
+     * Частичное обновление: атрибуты сопоставляются по имени и обновляются на месте,
+     * поэтому при сбросе контекста Hibernate выполняет только INSERT/UPDATE/DELETE для реально изменённых строк.
+     * Версия проверяется так же, как в update.
+     */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.ENTITIES_CACHE, key = "#id")
+    public EavEntityDto patch(Long id, EavEntityPatchDto patch) {
+        return writeWithRetry(id, patch.getVersion(), () -> {
+            EavEntity entity = findForWrite(id, patch.getVersion());
+
+            // Цели связей загружаются до изменения сущности: запрос по eav_entity может сбросить контекст,
+            // и новый атрибут ушёл бы в базу раньше, чем DAO добавит его имя в справочник
+            List<EavRelationDto> newRelations = removeRelations(entity, patch);
+            Map<Long, EavEntity> targets = resolveTargets(newRelations);
+            if (patch.getType() != null) {
+                entity.setType(patch.getType());
+            }
+            patchAttributes(entity, patch);
+            addRelations(entity, newRelations, targets);
+            syncAttributesDocument(entity);
+            EavEntity patchedEntity = daoService.edit(entity);
+            cacheInvalidation.publish(Collections.singletonList(id));
+            return writtenToDto(patchedEntity);
+        });
+    }
+
+    // Вместе с сущностью удаляются входящие связи, а они входят в закэшированные DTO сущностей-источников
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ENTITIES_CACHE, allEntries = true)
     @Transactional
     public void deleteEntity(Long id) {
         daoService.deleteEntity(id);
+        cacheInvalidation.publishAll();
+    }
+
+    /**
+     * Выполняет изменение сущности в отдельной транзакции. Изменения update и patch не зависят от порядка
+     * применения (добавление, замена по имени), поэтому после конфликта версий без If-Match транзакция
+     * откатывается и изменение применяется заново к свежей версии — не больше eav.update.max-attempts раз.
+     * Откаченная попытка ничего не записывает, поэтому повтор не дублирует строки.
+     * С If-Match повтор не нужен: клиент ждёт изменения именно своей версии.
+     */
+    private EavEntityDto writeWithRetry(Long id, Long expectedVersion, Supplier<EavEntityDto> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw new PreconditionFailedException("Сущность изменена параллельно, id: " + id);
+                }
+                if (attempt >= updateAttempts) {
+                    throw new ConcurrentUpdateException("Сущность изменяется параллельно, изменение не применено за "
+                            + attempt + " попыток, id: " + id);
+                }
+                updateConflicts.increment();
+            }
+        }
+    }
+
+    private EavEntity findForWrite(Long id, Long expectedVersion) {
+        EavEntity entity = daoService.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Сущность не найдена, id: " + id));
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            throw new PreconditionFailedException("Версия сущности " + id + " — " + entity.getVersion()
+                    + ", ожидалась " + expectedVersion);
+        }
+        return entity;
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new BadRequestException("Размер страницы должен быть положительным: " + limit);
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private void patchAttributes(EavEntity entity, EavEntityPatchDto patch) {
+        Set<String> removedNames = patch.getRemoveAttributes() != null ? patch.getRemoveAttributes() : Collections.emptySet();
+        // При повторе имени в запросе побеждает последнее значение
+        Map<String, EavAttributeValueDto> upserts = new LinkedHashMap<>();
+        if (patch.getAttributes() != null) {
+            for (EavAttributeValueDto attrDto : patch.getAttributes()) {
+                if (attrDto.getAttributeName() == null) {
+                    throw new BadRequestException("Не задано имя атрибута");
+                }
+                upserts.put(attrDto.getAttributeName(), attrDto);
+            }
+        }
+
+        // Сначала удаления: явно запрошенные и дубликаты имён, накопленные добавлениями через PUT.
+        // removeIf удаляет через итератор, поэтому не зависит от hashCode изменяемых элементов
+        Map<String, EavAttributeValue> existing = new HashMap<>();
+        entity.getAttributes().removeIf(attribute -> {
+            String name = attribute.getAttributeName();
+            if (removedNames.contains(name)) {
+                return true;
+            }
+            return upserts.containsKey(name) && existing.putIfAbsent(name, attribute) != null;
+        });
+
+        upserts.forEach((name, attrDto) -> {
+            EavAttributeValue attribute = existing.get(name);
+            if (attribute == null) {
+                attribute = new EavAttributeValue();
+                attribute.setAttributeName(name);
+                applyTypedValue(attribute, attrDto);
+                attribute.setEntity(entity);
+                entity.getAttributes().add(attribute);
+            } else {
+                EavAttributeValue candidate = new EavAttributeValue();
+                applyTypedValue(candidate, attrDto);
+                // Неизменённое значение не трогаем, чтобы Hibernate не выполнял лишний UPDATE
+                if (!Objects.equals(attribute.getValue(), candidate.getValue())
+                        || attribute.getValueType() != candidate.getValueType()) {
+                    applyTypedValue(attribute, attrDto);
+                }
+            }
+        });
+    }
+
+    /**
+     * Удаляет запрошенные связи.
+     * @return добавляемые связи, которых у сущности ещё нет
+     */
+    private static List<EavRelationDto> removeRelations(EavEntity entity, EavEntityPatchDto patch) {
+        if (patch.getRemoveRelations() != null && !patch.getRemoveRelations().isEmpty()) {
+            entity.getRelations().removeIf(relation -> patch.getRemoveRelations().stream()
+                    .anyMatch(removeDto -> matches(relation, removeDto)));
+        }
+        if (patch.getRelations() == null || patch.getRelations().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return patch.getRelations().stream()
+                .filter(relDto -> entity.getRelations().stream().noneMatch(relation -> matches(relation, relDto)))
+                .collect(Collectors.toList());
     }
 
-    private void addAttributesAndRelations(EavEntity entity, EavEntityDto dto) {
+    private static void addRelations(EavEntity entity, List<EavRelationDto> newRelations, Map<Long, EavEntity> targets) {
+        newRelations.forEach(relDto -> {
+            EavRelation relation = new EavRelation();
+            relation.setRelationType(relDto.getRelationType());
+            relation.setTarget(targets.get(relDto.getTargetId()));
+            relation.setSource(entity);
+            entity.getRelations().add(relation);
+        });
+    }
+
+    private static void applyTypedValue(EavAttributeValue attribute, EavAttributeValueDto attrDto) {
+        try {
+            attribute.setTypedValue(attrDto.getValueType(), attrDto.getValue());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректное значение атрибута " + attrDto.getAttributeName()
+                    + " для типа " + attrDto.getValueType() + ": " + attrDto.getValue());
+        }
+    }
+
+    private static boolean matches(EavRelation relation, EavRelationDto relDto) {
+        if (relDto.getId() != null) {
+            return relDto.getId().equals(relation.getId());
+        }
+        if (!Objects.equals(relation.getRelationType(), relDto.getRelationType())) {
+            return false;
+        }
+        return relDto.getTargetId() == null
+                || (relation.getTarget() != null && relDto.getTargetId().equals(relation.getTarget().getId()));
+    }
+
+    /**
+     * Загружает целевые сущности переданных связей одним запросом по списку id.
+     * Если часть id не найдена, все отсутствующие перечисляются в одном исключении.
+     */
+    private Map<Long, EavEntity> resolveTargets(Collection<EavRelationDto> relations) {
+        if (relations == null) {
+            return Collections.emptyMap();
+        }
+        Set<Long> targetIds = new LinkedHashSet<>();
+        for (EavRelationDto relDto : relations) {
+            if (relDto.getTargetId() == null) {
+                throw new BadRequestException("Не задан targetId связи: " + relDto.getRelationType());
+            }
+            targetIds.add(relDto.getTargetId());
+        }
+        if (targetIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, EavEntity> targets = daoService.findAllById(targetIds).stream()
+                .collect(Collectors.toMap(EavEntity::getId, Function.identity()));
+        List<Long> missingIds = targetIds.stream()
+                .filter(targetId -> !targets.containsKey(targetId))
+                .sorted()
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            throw new ResourceNotFoundException("Сущности не найдены, id: " + missingIds);
+        }
+        return targets;
+    }
+
+    private void addAttributesAndRelations(EavEntity entity, EavEntityDto dto, Map<Long, EavEntity> targets) {
         // Добавление атрибутов
         if (dto.getAttributes() != null) {
             dto.getAttributes().forEach(attrDto -> {
                 EavAttributeValue attribute = new EavAttributeValue();
                 attribute.setAttributeName(attrDto.getAttributeName());
-                attribute.setValue(attrDto.getValue());
+                applyTypedValue(attribute, attrDto);
                 entity.getAttributes().add(attribute);
                 attribute.setEntity(entity);
             });
@@ -109,8 +568,7 @@ public class EavEntityServiceImpl implements EavEntityService {
         // Добавление связей
         if (dto.getRelations() != null) {
             dto.getRelations().forEach(relDto -> {
-                EavEntity target = daoService.findById(relDto.getTargetId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Сущность не найдена, id: " + relDto.getTargetId()));
+                EavEntity target = targets.get(relDto.getTargetId());
                 EavRelation relation = new EavRelation();
                 relation.setRelationType(relDto.getRelationType());
                 relation.setTarget(target);
@@ -119,4 +577,25 @@ public class EavEntityServiceImpl implements EavEntityService {
             });
         }
     }
+
+    /**
+     * Пересобирает jsonb-копию атрибутов из коллекции. Вызывается при каждой записи независимо
+     * от eav.document.enabled, поэтому копия обновляется в той же транзакции, что и строки атрибутов.
+     */
+    private static void syncAttributesDocument(EavEntity entity) {
+        entity.setAttributesDocument(EavEntityMapper.attributesToDocument(entity.getAttributes()));
+    }
+
+    // После записи коллекция атрибутов уже загружена и, в отличие от jsonb-копии, содержит id атрибутов
+    private EavEntityDto writtenToDto(EavEntity entity) {
+        return mappingTimer.record(() -> EavEntityMapper.entityToDto(entity));
+    }
+
+    private EavEntityDto toDto(EavEntity entity) {
+        return toDto(entity, EnumSet.allOf(EavEntityInclude.class));
+    }
+
+    private EavEntityDto toDto(EavEntity entity, Set<EavEntityInclude> includes) {
+        return mappingTimer.record(() -> EavEntityMapper.entityToDto(entity, includes, documentEnabled));
+    }
 }
\ No newline at end of file
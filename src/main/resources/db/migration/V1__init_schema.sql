@@ -0,0 +1,51 @@
+-- Базовая схема EAV.
+-- Скрипт идемпотентен: на базе, которую раньше создавал ddl-auto=update, он только
+-- добавляет недостающие колонки и последовательности, не трогая существующие данные.
+
+CREATE TABLE IF NOT EXISTS eav_entity (
+    id   BIGINT       NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    CONSTRAINT eav_entity_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_eav_entity_type UNIQUE (type)
+);
+
+CREATE TABLE IF NOT EXISTS eav_attribute_value (
+    id              BIGINT       NOT NULL,
+    attribute_name  VARCHAR(255),
+    value           VARCHAR(255),
+    value_type      VARCHAR(255),
+    long_value      BIGINT,
+    double_value    DOUBLE PRECISION,
+    boolean_value   BOOLEAN,
+    timestamp_value TIMESTAMP(6) WITH TIME ZONE,
+    entity_id       BIGINT,
+    CONSTRAINT eav_attribute_value_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_eav_attribute_value_entity FOREIGN KEY (entity_id) REFERENCES eav_entity (id)
+);
+
+-- Типизированные колонки появились позже базовой таблицы
+ALTER TABLE eav_attribute_value ADD COLUMN IF NOT EXISTS value_type VARCHAR(255);
+ALTER TABLE eav_attribute_value ADD COLUMN IF NOT EXISTS long_value BIGINT;
+ALTER TABLE eav_attribute_value ADD COLUMN IF NOT EXISTS double_value DOUBLE PRECISION;
+ALTER TABLE eav_attribute_value ADD COLUMN IF NOT EXISTS boolean_value BOOLEAN;
+ALTER TABLE eav_attribute_value ADD COLUMN IF NOT EXISTS timestamp_value TIMESTAMP(6) WITH TIME ZONE;
+
+CREATE TABLE IF NOT EXISTS eav_relation (
+    id            BIGINT NOT NULL,
+    relation_type VARCHAR(255),
+    source_id     BIGINT,
+    target_id     BIGINT,
+    CONSTRAINT eav_relation_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_eav_relation_source FOREIGN KEY (source_id) REFERENCES eav_entity (id),
+    CONSTRAINT fk_eav_relation_target FOREIGN KEY (target_id) REFERENCES eav_entity (id)
+);
+
+-- Последовательности с шагом 50 под пуловый оптимизатор Hibernate (allocationSize = 50).
+-- На старой базе с IDENTITY-ключами последовательность сдвигается за текущий максимум id.
+CREATE SEQUENCE IF NOT EXISTS eav_entity_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS eav_attribute_value_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS eav_relation_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('eav_entity_seq', MAX(id)) FROM eav_entity HAVING MAX(id) IS NOT NULL;
+SELECT setval('eav_attribute_value_seq', MAX(id)) FROM eav_attribute_value HAVING MAX(id) IS NOT NULL;
+SELECT setval('eav_relation_seq', MAX(id)) FROM eav_relation HAVING MAX(id) IS NOT NULL;
@@ -0,0 +1,26 @@
+-- Индексы под пути доступа EAV.
+
+-- Подгрузка атрибутов сущности и EXISTS-фильтры по имени атрибута
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_entity_name
+    ON eav_attribute_value (entity_id, attribute_name);
+
+-- Диапазонные фильтры по типизированным значениям (attr[...].gt/lt и т.д.)
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_long
+    ON eav_attribute_value (attribute_name, long_value);
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_double
+    ON eav_attribute_value (attribute_name, double_value);
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_timestamp
+    ON eav_attribute_value (attribute_name, timestamp_value);
+
+-- Исходящие и входящие связи
+CREATE INDEX IF NOT EXISTS idx_eav_relation_source ON eav_relation (source_id);
+CREATE INDEX IF NOT EXISTS idx_eav_relation_target ON eav_relation (target_id);
+
+-- Поиск подстроки: lower(type) LIKE '%x%' и lower(attribute_name) LIKE '%x%'
+-- обычный B-tree не использует, поэтому нужны триграммные GIN-индексы.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_eav_entity_type_trgm
+    ON eav_entity USING gin (lower(type) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_name_trgm
+    ON eav_attribute_value USING gin (lower(attribute_name) gin_trgm_ops);
@@ -0,0 +1,3 @@
+-- Условия attr.<имя>=<значение> сравнивают текстовую запись значения атрибута
+CREATE INDEX IF NOT EXISTS idx_eav_attribute_value_text
+    ON eav_attribute_value (attribute_name, value);
@@ -0,0 +1,14 @@
+-- Денормализованная копия атрибутов сущности: [{"name": ..., "value": ..., "type": ...}, ...].
+-- Источник истины — eav_attribute_value; тем же выражением колонку пересобирает EavAttributeDocumentRebuildJob
+ALTER TABLE eav_entity ADD COLUMN IF NOT EXISTS attributes_document jsonb;
+
+UPDATE eav_entity e
+SET attributes_document = coalesce((
+        SELECT jsonb_agg(jsonb_build_object('name', a.attribute_name, 'value', a.value,
+                                            'type', coalesce(a.value_type, 'TEXT')) ORDER BY a.id)
+        FROM eav_attribute_value a
+        WHERE a.entity_id = e.id), '[]'::jsonb);
+
+-- jsonb_path_ops поддерживает только @>, зато индекс компактнее и быстрее jsonb_ops
+CREATE INDEX IF NOT EXISTS idx_eav_entity_attributes_document
+    ON eav_entity USING gin (attributes_document jsonb_path_ops);
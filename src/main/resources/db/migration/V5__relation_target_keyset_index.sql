@@ -0,0 +1,4 @@
+-- Входящие связи читаются страницами в порядке id: составной индекс отдаёт их уже упорядоченными,
+-- без сортировки всех связей популярной целевой сущности. Индекс по одному target_id становится лишним
+DROP INDEX IF EXISTS idx_eav_relation_target;
+CREATE INDEX idx_eav_relation_target ON eav_relation (target_id, id);
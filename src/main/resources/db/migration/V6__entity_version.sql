@@ -0,0 +1,3 @@
+-- Версия строки для оптимистической блокировки (@Version в EavEntity): UPDATE проверяет, что строку
+-- не изменили с момента чтения. Существующие сущности начинают с версии 0
+ALTER TABLE eav_entity ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,37 @@
+-- Справочник имён атрибутов: строка атрибута хранит 4-байтовый id имени вместо строки,
+-- поэтому таблица и индексы по имени становятся меньше, а сравнение имён — сравнением чисел.
+-- Имя и id не меняются после создания, приложение держит справочник в памяти (EavAttributeDictionary)
+CREATE TABLE eav_attribute_definition (
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT eav_attribute_definition_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_eav_attribute_definition_name UNIQUE (name)
+);
+
+INSERT INTO eav_attribute_definition (name)
+SELECT DISTINCT attribute_name FROM eav_attribute_value WHERE attribute_name IS NOT NULL ORDER BY attribute_name;
+
+ALTER TABLE eav_attribute_value ADD COLUMN attribute_id INTEGER;
+UPDATE eav_attribute_value a SET attribute_id = d.id
+FROM eav_attribute_definition d WHERE d.name = a.attribute_name;
+ALTER TABLE eav_attribute_value ADD CONSTRAINT fk_eav_attribute_value_definition
+    FOREIGN KEY (attribute_id) REFERENCES eav_attribute_definition (id);
+
+-- Индексы по имени пересоздаются по id имени
+DROP INDEX IF EXISTS idx_eav_attribute_value_entity_name;
+DROP INDEX IF EXISTS idx_eav_attribute_value_long;
+DROP INDEX IF EXISTS idx_eav_attribute_value_double;
+DROP INDEX IF EXISTS idx_eav_attribute_value_timestamp;
+DROP INDEX IF EXISTS idx_eav_attribute_value_text;
+DROP INDEX IF EXISTS idx_eav_attribute_value_name_trgm;
+ALTER TABLE eav_attribute_value DROP COLUMN attribute_name;
+
+CREATE INDEX idx_eav_attribute_value_entity_attribute ON eav_attribute_value (entity_id, attribute_id);
+CREATE INDEX idx_eav_attribute_value_long ON eav_attribute_value (attribute_id, long_value);
+CREATE INDEX idx_eav_attribute_value_double ON eav_attribute_value (attribute_id, double_value);
+CREATE INDEX idx_eav_attribute_value_timestamp ON eav_attribute_value (attribute_id, timestamp_value);
+CREATE INDEX idx_eav_attribute_value_text ON eav_attribute_value (attribute_id, value);
+
+-- Поиск подстроки в имени идёт по справочнику, а не по всем строкам атрибутов
+CREATE INDEX idx_eav_attribute_definition_name_trgm
+    ON eav_attribute_definition USING gin (lower(name) gin_trgm_ops);
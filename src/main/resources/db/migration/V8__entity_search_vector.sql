@@ -0,0 +1,15 @@
+-- Полнотекстовый поиск по сущности: тип (вес A), имена атрибутов (B) и их значения (C) в одном tsvector.
+-- Конфигурация simple: значения атрибутов — коды, имена и числа на разных языках, стемминг их только портит.
+-- Вектор — генерируемая колонка над собственными колонками строки: имена и значения берутся из jsonb-копии
+-- атрибутов (attributes_document), которую сервис записывает тем же UPDATE, что и новую версию сущности.
+-- Поэтому вектор обновляется без дополнительных запросов и блокировок и вслед за копией пересобирается
+-- EavAttributeDocumentRebuildJob после записи атрибутов в обход сервиса
+ALTER TABLE eav_entity ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(type, '')), 'A')
+    || setweight(jsonb_to_tsvector('simple',
+            coalesce(jsonb_path_query_array(attributes_document, '$[*].name'), '[]'), '["string"]'), 'B')
+    || setweight(jsonb_to_tsvector('simple',
+            coalesce(jsonb_path_query_array(attributes_document, '$[*].value'), '[]'), '["string"]'), 'C')
+) STORED;
+
+CREATE INDEX idx_eav_entity_search_vector ON eav_entity USING gin (search_vector);
@@ -0,0 +1,104 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavRelationDto;
+import src.main.eav.service.EavEntityService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static src.main.eav.EavTestFixtures.attribute;
+import static src.main.eav.EavTestFixtures.entity;
+
+/**
+ * Запись атрибутов с именами, которых ещё нет в справочнике eav_attribute_definition.
+ * Пул соединений уменьшен до двух, чтобы запись, занимающая больше одного соединения, исчерпала его.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=5000"})
+class EavAttributeDictionaryTests {
+
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+    }
+
+    @Test
+    void patchWithNewAttributeNameAndRelation() {
+        Long targetId = service.save(entity("patch-target")).getId();
+        Long id = service.save(entity("patched")).getId();
+        String name = "patch-name-" + System.nanoTime();
+
+        // Загрузка цели связи не должна сбросить новый атрибут до регистрации его имени
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.setType("patched-again");
+        patch.getAttributes().add(attribute(name, "value"));
+        EavRelationDto relation = new EavRelationDto();
+        relation.setRelationType("parent");
+        relation.setTargetId(targetId);
+        patch.getRelations().add(relation);
+        service.patch(id, patch);
+
+        EavEntityDto stored = service.findById(id);
+        assertThat(stored.getAttributes()).extracting("attributeName").containsExactly(name);
+        assertThat(stored.getRelations()).extracting("targetId").containsExactly(targetId);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM aev.eav_attribute_value a "
+                + "JOIN aev.eav_attribute_definition d ON d.id = a.attribute_id WHERE d.name = ?", Long.class, name))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void concurrentWritersWithNewNamesFitInPool() throws Exception {
+        String prefix = "pool-name-" + System.nanoTime() + "-";
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            EavEntityDto dto = entity("pooled");
+            // Общее имя у всех и своё у каждого: вставка в справочник идёт в транзакции записи
+            dto.getAttributes().add(attribute(prefix + "shared", "value"));
+            dto.getAttributes().add(attribute(prefix + i, "value"));
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.save(dto).getId();
+            }));
+        }
+        start.countDown();
+        for (Future<Long> result : results) {
+            assertThat(result.get()).isNotNull();
+        }
+        executor.shutdown();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM aev.eav_attribute_definition WHERE name LIKE ?",
+                Long.class, prefix + "%")).isEqualTo(WRITERS + 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM aev.eav_attribute_value", Long.class))
+                .isEqualTo(2L * WRITERS);
+    }
+}
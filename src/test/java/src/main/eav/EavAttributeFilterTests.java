@@ -0,0 +1,90 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.controller.filter.EavAttributeFilter;
+import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dao.specification.EavEntitySpecification;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavValueType;
+import src.main.eav.repository.EavEntityRepository;
+import src.main.eav.service.EavEntityService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Условия на равенство дают одинаковый результат при проверке EXISTS-подзапросом
+ * и по jsonb-копии атрибутов (eav.document.enabled).
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class EavAttributeFilterTests {
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private EavEntityRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long typedId;
+    private Long textId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        typedId = service.save(entity("typed", "42", EavValueType.LONG)).getId();
+        textId = service.save(entity("text", "42", null)).getId();
+        service.save(entity("other", "7", EavValueType.LONG));
+    }
+
+    @Test
+    void untypedEqualityMatchesAnyTypeInBothModes() {
+        EavEntityFilter filter = filter(new EavAttributeFilter().setName("price").setEq("42"));
+
+        assertThat(find(filter, false)).containsExactlyInAnyOrder(typedId, textId);
+        assertThat(find(filter, true)).containsExactlyInAnyOrder(typedId, textId);
+    }
+
+    @Test
+    void typedEqualityMatchesOnlyThatTypeInBothModes() {
+        EavEntityFilter filter = filter(new EavAttributeFilter().setName("price")
+                .setType(EavValueType.LONG).setIn(List.of("42", "43")));
+
+        assertThat(find(filter, false)).containsExactly(typedId);
+        assertThat(find(filter, true)).containsExactly(typedId);
+    }
+
+    private List<Long> find(EavEntityFilter filter, boolean documentEnabled) {
+        return repository.findAll(new EavEntitySpecification(documentEnabled).getFilter(filter)).stream()
+                .map(EavEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static EavEntityFilter filter(EavAttributeFilter attributeFilter) {
+        return new EavEntityFilter().setAttributeFilters(List.of(attributeFilter));
+    }
+
+    private static EavEntityDto entity(String type, String price, EavValueType valueType) {
+        EavAttributeValueDto attribute = new EavAttributeValueDto();
+        attribute.setAttributeName("price");
+        attribute.setValue(price);
+        attribute.setValueType(valueType);
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType(type);
+        dto.setAttributes(Collections.singleton(attribute));
+        return dto;
+    }
+}
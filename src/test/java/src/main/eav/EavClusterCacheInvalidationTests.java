@@ -0,0 +1,110 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.cluster.EavCacheInvalidationPublisher;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.error.PreconditionFailedException;
+import src.main.eav.service.EavEntityService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static src.main.eav.EavTestFixtures.attribute;
+import static src.main.eav.EavTestFixtures.entity;
+
+/**
+ * Канал инвалидации между узлами. Другой узел изображается прямой записью в базу и NOTIFY
+ * от его имени; сообщения этого узла читаются отдельным соединением с LISTEN.
+ * Включены оба кэша — DTO и второго уровня Hibernate.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"eav.cluster-cache.enabled=true", "eav.cluster-cache.poll-timeout-ms=100", "eav.hibernate-cache.enabled=true"})
+class EavClusterCacheInvalidationTests {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private EavCacheInvalidationPublisher publisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcConnectionDetails connectionDetails;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+    }
+
+    @Test
+    void remoteWriteEvictsCachedEntity() throws Exception {
+        Long id = service.save(entity("before")).getId();
+        assertThat(service.findById(id).getType()).isEqualTo("before");
+
+        // Запись другого узла: без NOTIFY кэши продолжали бы отдавать старый тип
+        jdbcTemplate.update("UPDATE aev.eav_entity SET type = 'after', version = version + 1 WHERE id = ?", id);
+        assertThat(service.findById(id).getType()).isEqualTo("before");
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {
+        }, publisher.getChannel(), "other-node:" + id);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!"after".equals(service.findById(id).getType()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(service.findById(id).getType()).isEqualTo("after");
+    }
+
+    @Test
+    void committedWritesAreAnnouncedAndRolledBackAreNot() throws Exception {
+        EavEntityDto created = service.save(entity("announced"));
+
+        try (Connection connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                connectionDetails.getUsername(), connectionDetails.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + publisher.getChannel());
+            }
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+            EavEntityPatchDto stale = new EavEntityPatchDto();
+            stale.setVersion(created.getVersion() + 1);
+            stale.getAttributes().add(attribute("color", "red"));
+            assertThatThrownBy(() -> service.patch(created.getId(), stale))
+                    .isInstanceOf(PreconditionFailedException.class);
+
+            EavEntityPatchDto patch = new EavEntityPatchDto();
+            patch.getAttributes().add(attribute("color", "blue"));
+            service.patch(created.getId(), patch);
+
+            List<String> payloads = new ArrayList<>();
+            PGNotification[] notifications = pgConnection.getNotifications((int) TIMEOUT_MS);
+            for (PGNotification notification : notifications) {
+                payloads.add(notification.getParameter());
+            }
+            assertThat(payloads).containsExactly(publisher.getNode() + ":" + created.getId());
+        }
+    }
+}
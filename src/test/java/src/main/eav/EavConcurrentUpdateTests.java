@@ -0,0 +1,114 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.error.PreconditionFailedException;
+import src.main.eav.service.EavEntityService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static src.main.eav.EavTestFixtures.attribute;
+import static src.main.eav.EavTestFixtures.entity;
+
+/**
+ * Параллельные изменения одной сущности: без If-Match ни одно не теряется и не дублируется
+ * благодаря @Version и повтору в сервисе, с устаревшей версией изменение отклоняется.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "eav.update.max-attempts=50")
+class EavConcurrentUpdateTests {
+
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+    }
+
+    @Test
+    void concurrentAttributeAppendsAreAllApplied() throws Exception {
+        Long id = service.save(entity("contended")).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EavEntityDto>> results = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            EavEntityPatchDto patch = new EavEntityPatchDto();
+            patch.getAttributes().add(attribute("attr-" + i, "value-" + i));
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.patch(id, patch);
+            }));
+        }
+        start.countDown();
+        for (Future<EavEntityDto> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        EavEntityDto stored = service.findById(id);
+        assertThat(stored.getAttributes()).extracting(EavAttributeValueDto::getAttributeName)
+                .containsExactlyInAnyOrder(names());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM aev.eav_attribute_value WHERE entity_id = ?", Long.class, id))
+                .isEqualTo(WRITERS);
+        // Каждое применённое изменение увеличило версию ровно один раз
+        assertThat(stored.getVersion()).isEqualTo(WRITERS);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT jsonb_array_length(attributes_document) FROM aev.eav_entity WHERE id = ?", Integer.class, id))
+                .isEqualTo(WRITERS);
+    }
+
+    @Test
+    void staleVersionIsRejected() {
+        EavEntityDto created = service.save(entity("versioned"));
+        EavEntityPatchDto first = new EavEntityPatchDto();
+        first.setVersion(created.getVersion());
+        first.getAttributes().add(attribute("color", "red"));
+        EavEntityDto updated = service.patch(created.getId(), first);
+        assertThat(updated.getVersion()).isEqualTo(created.getVersion() + 1);
+
+        EavEntityPatchDto stale = new EavEntityPatchDto();
+        stale.setVersion(created.getVersion());
+        stale.getAttributes().add(attribute("color", "blue"));
+
+        assertThatThrownBy(() -> service.patch(created.getId(), stale))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(service.findById(created.getId()).getAttributes())
+                .extracting("value").containsExactly("red");
+    }
+
+    private static String[] names() {
+        String[] names = new String[WRITERS];
+        for (int i = 0; i < WRITERS; i++) {
+            names[i] = "attr-" + i;
+        }
+        return names;
+    }
+}
@@ -0,0 +1,115 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.service.EavEntityService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Полнотекстовый поиск по типу, именам и значениям атрибутов: вектор поиска обновляется
+ * вместе с записью через сервис, результаты упорядочены по релевантности, а страницы
+ * по курсору покрывают выдачу без пропусков и повторов даже при равной релевантности.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+class EavFullTextSearchTests {
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+    }
+
+    @Test
+    void findsAttributeValuesAndRanksTypeMatchesFirst() {
+        Long byValue = service.save(entity("jacket", "color", "crimson")).getId();
+        Long byType = service.save(entity("crimson-catalog", "size", "L")).getId();
+        service.save(entity("boots", "color", "black"));
+
+        EavEntityPageDto page = service.findPage(fullText("crimson", null, 10));
+
+        // Совпадение в типе весит больше совпадения в значении атрибута
+        assertThat(page.getItems()).extracting(EavEntityDto::getId).containsExactly(byType, byValue);
+        assertThat(page.getItems().get(1).getAttributes()).extracting(EavAttributeValueDto::getValue)
+                .containsExactly("crimson");
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void searchFollowsAttributeUpdates() {
+        Long id = service.save(entity("scarf", "color", "olive")).getId();
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        EavAttributeValueDto attribute = new EavAttributeValueDto();
+        attribute.setAttributeName("color");
+        attribute.setValue("mustard");
+        patch.getAttributes().add(attribute);
+        service.patch(id, patch);
+
+        assertThat(service.findPage(fullText("olive", null, 10)).getItems()).isEmpty();
+        assertThat(service.findPage(fullText("mustard", null, 10)).getItems())
+                .extracting(EavEntityDto::getId).containsExactly(id);
+    }
+
+    @Test
+    void keysetPagesCoverTiedRanksExactlyOnce() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(service.save(entity("tied-" + i, "label", "common")).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            EavEntityPageDto page = service.findPage(fullText("common", cursor, 3));
+            page.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Релевантность у всех одинаковая, поэтому порядок задаёт id
+        assertThat(seen).containsExactlyElementsOf(ids);
+    }
+
+    private static EavEntityFilter fullText(String query, String after, int limit) {
+        return new EavEntityFilter()
+                .setSearch(query)
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT)
+                .setAfter(after)
+                .setLimit(limit);
+    }
+
+    private static EavEntityDto entity(String type, String name, String value) {
+        EavAttributeValueDto attribute = new EavAttributeValueDto();
+        attribute.setAttributeName(name);
+        attribute.setValue(value);
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType(type);
+        dto.setAttributes(Collections.singleton(attribute));
+        return dto;
+    }
+}
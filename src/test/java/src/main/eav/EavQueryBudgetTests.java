@@ -0,0 +1,170 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavRelationDto;
+import src.main.eav.metrics.SqlStatementCounter;
+import src.main.eav.service.EavEntityService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-операторов на запрос не должно зависеть от числа сущностей в выборке.
+ * Режим FAIL дополнительно прерывает запрос, превысивший бюджет @SqlStatementBudget.
+ * MockMvc выполняет запрос в потоке теста, поэтому счётчик читается сразу после него.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = "eav.sql.budget.mode=FAIL")
+@AutoConfigureMockMvc
+class EavQueryBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+    }
+
+    @Test
+    void listStatementsDoNotGrowWithResultSize() throws Exception {
+        // include= и search= идут через догрузку найденных сущностей по id;
+        // 600 строк больше прежней порции догрузки в 500 id
+        List<String> uris = List.of(
+                "/api/entities",
+                "/api/entities?limit=100",
+                "/api/entities?search=item",
+                "/api/entities?include=attributes,relations");
+
+        List<Long> few = listStatements(uris, 3);
+        List<Long> many = listStatements(uris, 30);
+        List<Long> most = listStatements(uris, 600);
+
+        assertThat(few).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(3));
+        assertThat(many).isEqualTo(few);
+        assertThat(most).isEqualTo(few);
+    }
+
+    @Test
+    void entityWithRelationsIsLoadedWithinBudget() throws Exception {
+        List<Long> ids = createEntities(10);
+
+        assertThat(statements("/api/entities/" + ids.get(ids.size() - 1))).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void graphIsTraversedWithOneStatementDespiteCycles() throws Exception {
+        List<Long> ids = createEntities(5);
+        Long rootId = rootId();
+        // Замыкаем цикл: корень ссылается на первую сущность, которая ссылается на корень
+        EavRelationDto back = new EavRelationDto();
+        back.setRelationType("parent");
+        back.setTargetId(ids.get(0));
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.setRelations(Collections.singleton(back));
+        service.patch(rootId, patch);
+
+        assertThat(statements("/api/entities/" + ids.get(1) + "/graph?depth=10")).isEqualTo(1);
+
+        EavGraphDto graph = service.findGraph(ids.get(1), 10, "parent");
+        assertThat(graph.getNodes()).extracting("id").containsExactly(ids.get(1), rootId, ids.get(0));
+        assertThat(graph.getNodes()).extracting("depth").containsExactly(0, 1, 2);
+        assertThat(graph.getEdges()).hasSize(3);
+    }
+
+    @Test
+    void deletingTargetRemovesIncomingRelationsRegardlessOfTheirCount() throws Exception {
+        createEntities(3);
+        long few = deleteStatements(rootId());
+
+        clean();
+        createEntities(30);
+        long many = deleteStatements(rootId());
+
+        assertThat(many).isEqualTo(few);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM aev.eav_relation", Long.class)).isZero();
+    }
+
+    private Long rootId() {
+        return jdbcTemplate.queryForObject("SELECT id FROM aev.eav_entity WHERE type = 'root'", Long.class);
+    }
+
+    private long deleteStatements(Long id) throws Exception {
+        mockMvc.perform(delete("/api/entities/" + id)).andExpect(status().isNoContent());
+        return counter.getCount();
+    }
+
+    private List<Long> listStatements(List<String> uris, int count) throws Exception {
+        clean();
+        createEntities(count);
+        List<Long> counts = new ArrayList<>();
+        for (String uri : uris) {
+            counts.add(statements(uri));
+        }
+        return counts;
+    }
+
+    private long statements(String uri) throws Exception {
+        mockMvc.perform(get(uri)).andExpect(status().isOk());
+        return counter.getCount();
+    }
+
+    /**
+     * Корневая сущность и count сущностей с тремя атрибутами и связью с корнем.
+     */
+    private List<Long> createEntities(int count) {
+        EavEntityDto root = new EavEntityDto();
+        root.setType("root");
+        Long rootId = service.save(root).getId();
+
+        List<EavEntityDto> dtos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EavEntityDto dto = new EavEntityDto();
+            dto.setType("item-" + i);
+            for (int j = 0; j < 3; j++) {
+                EavAttributeValueDto attribute = new EavAttributeValueDto();
+                attribute.setAttributeName("attr-" + j);
+                attribute.setValue("value-" + i);
+                dto.getAttributes().add(attribute);
+            }
+            EavRelationDto relation = new EavRelationDto();
+            relation.setRelationType("parent");
+            relation.setTargetId(rootId);
+            dto.getRelations().add(relation);
+            dtos.add(dto);
+        }
+        return service.saveAll(dtos);
+    }
+}
@@ -0,0 +1,157 @@
+package src.main.eav;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет, что схема из миграций Flyway содержит индексы под основные пути доступа
+ * и что планировщик PostgreSQL выбирает их для фильтрующих запросов.
+ * <p>
+ * В пустой таблице последовательное сканирование всегда дешевле, поэтому внутри
+ * транзакции теста оно отключается через {@code SET LOCAL enable_seqscan = off}.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest
+@Transactional
+class EavSchemaMigrationTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void disableSeqScan() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Test
+    void typeSubstringSearchUsesTrigramIndex() {
+        assertThat(explain("SELECT e.id FROM aev.eav_entity e WHERE lower(e.type) LIKE '%col%'"))
+                .contains("idx_eav_entity_type_trgm");
+    }
+
+    @Test
+    void attributeNameSubstringSearchUsesTrigramIndex() {
+        assertThat(explain("SELECT d.id FROM aev.eav_attribute_definition d WHERE lower(d.name) LIKE '%col%'"))
+                .contains("idx_eav_attribute_definition_name_trgm");
+    }
+
+    @Test
+    void attributeHydrationUsesEntityIndex() {
+        assertThat(explain("SELECT a.id FROM aev.eav_attribute_value a WHERE a.entity_id IN (1, 2)"))
+                .contains("idx_eav_attribute_value_entity_attribute");
+    }
+
+    @Test
+    void typedRangeFilterUsesTypedIndex() {
+        int priceId = populateAttributeValues();
+        assertThat(explain("SELECT a.entity_id FROM aev.eav_attribute_value a "
+                + "WHERE a.attribute_id = " + priceId + " AND a.double_value > 100"))
+                .contains("idx_eav_attribute_value_double");
+    }
+
+    @Test
+    void attributeValueEqualityUsesTextIndex() {
+        int priceId = populateAttributeValues();
+        assertThat(explain("SELECT a.entity_id FROM aev.eav_attribute_value a "
+                + "WHERE a.attribute_id = " + (priceId + 1) + " AND a.value IN ('red', 'blue')"))
+                .contains("idx_eav_attribute_value_text");
+    }
+
+    @Test
+    void attributeValuesReferenceNameDictionary() {
+        assertThat(jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+                + "WHERE table_schema = 'aev' AND table_name = 'eav_attribute_value'", String.class))
+                .contains("attribute_id")
+                .doesNotContain("attribute_name");
+    }
+
+    @Test
+    void attributesDocumentContainmentUsesGinIndex() {
+        assertThat(explain("SELECT e.id FROM aev.eav_entity e "
+                + "WHERE e.attributes_document @> '[{\"name\": \"color\", \"value\": \"red\", \"type\": \"TEXT\"}]'"))
+                .contains("idx_eav_entity_attributes_document");
+    }
+
+    @Test
+    void relationLookupsUseSourceAndTargetIndexes() {
+        assertThat(explain("SELECT r.id FROM aev.eav_relation r WHERE r.source_id IN (1, 2)"))
+                .contains("idx_eav_relation_source");
+        assertThat(explain("SELECT r.id FROM aev.eav_relation r WHERE r.target_id = 1"))
+                .contains("idx_eav_relation_target");
+    }
+
+    @Test
+    void incomingRelationPageIsReadInIndexOrder() {
+        assertThat(explain("SELECT r.id FROM aev.eav_relation r WHERE r.target_id = 1 AND r.id > 100 ORDER BY r.id LIMIT 50"))
+                .contains("idx_eav_relation_target")
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void fullTextSearchUsesGinIndex() {
+        assertThat(explain("SELECT e.id FROM aev.eav_entity e "
+                + "WHERE e.search_vector @@ websearch_to_tsquery('simple', 'red shirt')"))
+                .contains("idx_eav_entity_search_vector");
+    }
+
+    @Test
+    void searchVectorFollowsTypeAndAttributesDocument() {
+        Long entityId = jdbcTemplate.queryForObject("INSERT INTO aev.eav_entity (id, type, attributes_document) "
+                + "VALUES (nextval('aev.eav_entity_seq'), 'vector-sample', "
+                + "'[{\"name\": \"vector-color\", \"value\": \"crimson\", \"type\": \"TEXT\"}]') "
+                + "RETURNING id", Long.class);
+        assertThat(matches(entityId, "crimson")).isTrue();
+        assertThat(matches(entityId, "vector-color")).isTrue();
+
+        jdbcTemplate.update("UPDATE aev.eav_entity SET attributes_document = "
+                + "'[{\"name\": \"vector-color\", \"value\": \"teal\", \"type\": \"TEXT\"}]' WHERE id = ?", entityId);
+        assertThat(matches(entityId, "crimson")).isFalse();
+        assertThat(matches(entityId, "teal")).isTrue();
+
+        jdbcTemplate.update("UPDATE aev.eav_entity SET type = 'renamed-sample' WHERE id = ?", entityId);
+        assertThat(matches(entityId, "renamed-sample")).isTrue();
+        assertThat(matches(entityId, "vector-sample")).isFalse();
+
+        jdbcTemplate.update("UPDATE aev.eav_entity SET attributes_document = NULL WHERE id = ?", entityId);
+        assertThat(matches(entityId, "teal")).isFalse();
+        assertThat(matches(entityId, "renamed-sample")).isTrue();
+    }
+
+    /**
+     * Несколько индексов начинаются с attribute_id, и на пустой таблице без статистики их оценки
+     * совпадают. Строки и ANALYZE откатываются вместе с транзакцией теста.
+     *
+     * @return id имени "price"; у "color" и "size" — следующие id
+     */
+    private int populateAttributeValues() {
+        Long entityId = jdbcTemplate.queryForObject("INSERT INTO aev.eav_entity (id, type) "
+                + "VALUES (nextval('aev.eav_entity_seq'), 'explain-sample') RETURNING id", Long.class);
+        int priceId = jdbcTemplate.queryForList("INSERT INTO aev.eav_attribute_definition (name) "
+                + "VALUES ('explain-price'), ('explain-color'), ('explain-size') RETURNING id", Integer.class).get(0);
+        jdbcTemplate.update("INSERT INTO aev.eav_attribute_value (id, attribute_id, value, value_type, double_value, entity_id) "
+                + "SELECT nextval('aev.eav_attribute_value_seq'), ? + i % 3, "
+                + "'v' || (i % 100), 'DOUBLE', i / 100.0, ? "
+                + "FROM generate_series(1, 5000) AS i", priceId, entityId);
+        jdbcTemplate.execute("ANALYZE aev.eav_attribute_value");
+        return priceId;
+    }
+
+    private boolean matches(Long entityId, String query) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT search_vector @@ websearch_to_tsquery('simple', ?) "
+                + "FROM aev.eav_entity WHERE id = ?", Boolean.class, query, entityId));
+    }
+
+    private String explain(String sql) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", plan);
+    }
+}
@@ -0,0 +1,132 @@
+package src.main.eav;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import src.main.eav.config.HibernateCacheConfig;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavRelationDto;
+import src.main.eav.metrics.SqlStatementCounter;
+import src.main.eav.service.EavEntityService;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static src.main.eav.EavTestFixtures.attribute;
+
+/**
+ * Кэш второго уровня: повторное чтение сущности с коллекциями и повторный findByType
+ * не обращаются к базе, а запись делает закэшированные данные и результаты запросов устаревшими.
+ * Кэш DTO отключён, чтобы чтения доходили до Hibernate.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(properties = {"eav.hibernate-cache.enabled=true", "eav.cache.entities.spec=expireAfterWrite=0s"})
+class EavSecondLevelCacheTests {
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private SqlStatementCounter counter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE aev.eav_relation, aev.eav_attribute_value, aev.eav_entity");
+        // TRUNCATE идёт в обход Hibernate, поэтому кэш очищается явно
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedReadsAreServedFromCache() {
+        Long id = createEntity("cached", "red");
+
+        service.findById(id);
+        assertThat(statements(() -> service.findById(id))).isZero();
+        EavEntityDto cached = service.findById(id);
+
+        assertThat(cached.getAttributes()).extracting("value").containsExactly("red");
+        assertThat(cached.getRelations()).hasSize(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void findByTypeIsServedFromQueryCache() {
+        createEntity("by-type", "red");
+
+        service.findByType("by-type");
+        assertThat(statements(() -> service.findByType("by-type"))).isZero();
+
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+        assertThat(statistics.getCacheRegionStatistics(HibernateCacheConfig.BY_TYPE_QUERY_REGION).getHitCount())
+                .isPositive();
+    }
+
+    @Test
+    void writesInvalidateCachedEntitiesAndQueries() {
+        Long id = createEntity("updated", "red");
+        service.findByType("updated");
+        service.findById(id);
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.getAttributes().add(attribute("color", "blue"));
+        service.patch(id, patch);
+
+        assertThat(service.findById(id).getAttributes()).extracting("value").containsExactly("blue");
+        List<EavEntityDto> byType = service.findByType("updated");
+        assertThat(byType).hasSize(1);
+        assertThat(byType.get(0).getAttributes()).extracting("value").containsExactly("blue");
+    }
+
+    @Test
+    void regionSizesAndStatisticsArePublished() {
+        Long id = createEntity("metrics", "red");
+        service.findById(id);
+
+        assertThat(registry.get("eav.hibernate.cache.size").tag("region", HibernateCacheConfig.ENTITY_REGION)
+                .gauge().value()).isPositive();
+        assertThat(registry.get("hibernate.second.level.cache.requests")
+                .tag("region", HibernateCacheConfig.ENTITY_REGION).functionCounters()).isNotEmpty();
+    }
+
+    private long statements(Runnable action) {
+        counter.reset();
+        action.run();
+        return counter.getCount();
+    }
+
+    private Long createEntity(String type, String color) {
+        EavEntityDto target = new EavEntityDto();
+        target.setType(type + "-target");
+        Long targetId = service.save(target).getId();
+
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType(type);
+        dto.getAttributes().add(attribute("color", color));
+        EavRelationDto relation = new EavRelationDto();
+        relation.setRelationType("parent");
+        relation.setTargetId(targetId);
+        dto.getRelations().add(relation);
+        return service.save(dto).getId();
+    }
+}
@@ -0,0 +1,26 @@
+package src.main.eav;
+
+import src.main.eav.dto.EavAttributeValueDto;
+import src.main.eav.dto.EavEntityDto;
+
+/**
+ * DTO для интеграционных тестов, которые создают сущности через сервис.
+ */
+final class EavTestFixtures {
+
+    private EavTestFixtures() {
+    }
+
+    static EavEntityDto entity(String type) {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType(type);
+        return dto;
+    }
+
+    static EavAttributeValueDto attribute(String name, String value) {
+        EavAttributeValueDto attribute = new EavAttributeValueDto();
+        attribute.setAttributeName(name);
+        attribute.setValue(value);
+        return attribute;
+    }
+}
@@ -0,0 +1,107 @@
+package src.main.eav.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.model.EavAttributeValue;
+import src.main.eav.model.EavEntity;
+import src.main.eav.model.EavRelation;
+
+import static org.mockito.Mockito.*;
+
+public class EavCacheInvalidationListenerTest {
+
+    @Mock
+    private EavCacheInvalidationPublisher publisher;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache entitiesCache;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private jakarta.persistence.Cache jpaCache;
+
+    @Mock
+    private org.hibernate.Cache secondLevelCache;
+
+    @Mock
+    private JdbcConnectionDetails connectionDetails;
+
+    private SimpleMeterRegistry registry;
+
+    private EavCacheInvalidationListener listener;
+
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        registry = new SimpleMeterRegistry();
+        when(publisher.getNode()).thenReturn("local");
+        when(publisher.getChannel()).thenReturn("eav_entity_changes");
+        when(cacheManager.getCache(CacheConfig.ENTITIES_CACHE)).thenReturn(entitiesCache);
+        when(entityManagerFactory.getCache()).thenReturn(jpaCache);
+        when(jpaCache.unwrap(org.hibernate.Cache.class)).thenReturn(secondLevelCache);
+        // Слушатель не запускается: сообщения передаются в handle напрямую
+        listener = new EavCacheInvalidationListener(publisher, cacheManager, entityManagerFactory,
+                connectionDetails, registry, 500, 5000);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    public void testHandle_EvictsChangedEntities() {
+        listener.handle("remote:1,2");
+
+        verify(entitiesCache).evict(1L);
+        verify(entitiesCache).evict(2L);
+        verify(secondLevelCache).evictEntityData(EavEntity.class, 1L);
+        verify(secondLevelCache).evictCollectionData(EavCacheInvalidationListener.ATTRIBUTES_ROLE, 2L);
+        verify(secondLevelCache).evictCollectionData(EavCacheInvalidationListener.RELATIONS_ROLE, 2L);
+        verify(secondLevelCache).evictEntityData(EavAttributeValue.class);
+        verify(secondLevelCache).evictEntityData(EavRelation.class);
+        verify(secondLevelCache).evictQueryRegions();
+        verify(entitiesCache, never()).clear();
+        Assert.assertEquals(registry.get("eav.cluster-cache.invalidations").counter().count(), 1.0);
+    }
+
+    @Test
+    public void testHandle_AllClearsCaches() {
+        listener.handle("remote:*");
+
+        verify(entitiesCache).clear();
+        verify(secondLevelCache).evictAllRegions();
+    }
+
+    @Test
+    public void testHandle_OwnMessagesAreSkipped() {
+        listener.handle("local:1");
+
+        verifyNoInteractions(entitiesCache, secondLevelCache);
+        Assert.assertEquals(registry.get("eav.cluster-cache.invalidations").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testHandle_MalformedMessageIsSkipped() {
+        listener.handle("garbage");
+
+        verifyNoInteractions(entitiesCache, secondLevelCache);
+    }
+}
@@ -0,0 +1,107 @@
+package src.main.eav.cluster;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class EavCacheInvalidationPublisherTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    public void testPublish_SendsIdsSignedByNode() {
+        EavCacheInvalidationPublisher publisher = new EavCacheInvalidationPublisher(jdbcTemplate, true, "eav_entity_changes");
+
+        publisher.publish(Arrays.asList(1L, 2L));
+
+        verify(jdbcTemplate, times(1)).query(eq("SELECT pg_notify(?, ?)"), any(RowCallbackHandler.class),
+                eq("eav_entity_changes"), eq(publisher.getNode() + ":1,2"));
+    }
+
+    @Test
+    public void testPublishAll() {
+        EavCacheInvalidationPublisher publisher = new EavCacheInvalidationPublisher(jdbcTemplate, true, "eav_entity_changes");
+
+        publisher.publishAll();
+
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class),
+                eq("eav_entity_changes"), eq(publisher.getNode() + ":*"));
+    }
+
+    @Test
+    public void testPublish_DisabledSendsNothing() {
+        EavCacheInvalidationPublisher publisher = new EavCacheInvalidationPublisher(jdbcTemplate, false, "eav_entity_changes");
+
+        publisher.publish(Collections.singletonList(1L));
+        publisher.publishAll();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testChannelMustBeIdentifier() {
+        new EavCacheInvalidationPublisher(jdbcTemplate, true, "changes; DROP TABLE x");
+    }
+
+    @Test
+    public void testMessage_LongIdListIsSplitAndParsedBack() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1_000_000_000L; id < 1_000_002_000L; id++) {
+            ids.add(id);
+        }
+
+        List<String> payloads = EavCacheInvalidationMessage.of("node", ids).toPayloads();
+
+        Assert.assertTrue(payloads.size() > 1, "Список id должен делиться на несколько сообщений");
+        List<Long> parsed = new ArrayList<>();
+        for (String payload : payloads) {
+            Assert.assertTrue(payload.length() <= EavCacheInvalidationMessage.MAX_PAYLOAD_LENGTH);
+            EavCacheInvalidationMessage message = EavCacheInvalidationMessage.parse(payload);
+            Assert.assertEquals(message.getNode(), "node");
+            Assert.assertFalse(message.isAll());
+            parsed.addAll(message.getIds());
+        }
+        Assert.assertEquals(parsed, ids);
+    }
+
+    @Test
+    public void testMessage_All() {
+        EavCacheInvalidationMessage message = EavCacheInvalidationMessage.parse("node:*");
+
+        Assert.assertTrue(message.isAll());
+        Assert.assertEquals(message.getNode(), "node");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMessage_WithoutNodeIsRejected() {
+        EavCacheInvalidationMessage.parse("1,2,3");
+    }
+}
@@ -10,28 +10,59 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.controller.filter.EavEntityInclude;
 import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavGraphEdgeDto;
+import src.main.eav.dto.EavGraphNodeDto;
+import src.main.eav.dto.EavIncomingRelationDto;
+import src.main.eav.dto.EavIncomingRelationPageDto;
+import src.main.eav.dto.EavIngestTicketDto;
+import src.main.eav.error.IngestQueueFullException;
+import src.main.eav.error.PreconditionFailedException;
+import src.main.eav.error.ResourceNotFoundException;
+import src.main.eav.ingest.EavIngestQueue;
+import src.main.eav.model.EavValueType;
 import src.main.eav.service.EavEntityService;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Import(EavEntityControllerTest.TestConfig.class)
-@WebMvcTest(EavEntityController.class)
+@WebMvcTest(value = EavEntityController.class, properties = "eav.bulk.chunk-size=2")
 public class EavEntityControllerTest {
 
     @Autowired
@@ -41,6 +72,9 @@ public class EavEntityControllerTest {
     @Autowired
     private EavEntityService eavEntityService;
 
+    @Autowired
+    private EavIngestQueue ingestQueue;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -51,6 +85,11 @@ public class EavEntityControllerTest {
             // Создаем мок EavEntityService вручную
             return Mockito.mock(EavEntityService.class);
         }
+
+        @Bean
+        public EavIngestQueue ingestQueue() {
+            return Mockito.mock(EavIngestQueue.class);
+        }
     }
 
     @Test
@@ -72,6 +111,97 @@ public class EavEntityControllerTest {
                 .andExpect(jsonPath("$.type").value("TestEntity"));
     }
 
+    @Test
+    public void testCreateEntity_RespondAsyncQueuesEntity() throws Exception {
+        EavEntityDto requestDto = new EavEntityDto();
+        requestDto.setType("QueuedEntity");
+
+        EavIngestTicketDto ticket = new EavIngestTicketDto();
+        ticket.setTicket("t-1");
+        ticket.setStatus(EavIngestTicketDto.Status.QUEUED);
+        when(ingestQueue.submit(any(EavEntityDto.class))).thenReturn(ticket);
+
+        mockMvc.perform(post("/api/entities")
+                        .header(EavEntityController.PREFER_HEADER, EavEntityController.RESPOND_ASYNC)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/entities/tickets/t-1"))
+                .andExpect(header().string(EavEntityController.PREFERENCE_APPLIED_HEADER, EavEntityController.RESPOND_ASYNC))
+                .andExpect(jsonPath("$.ticket").value("t-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        verify(eavEntityService, never()).save(argThat(dto -> "QueuedEntity".equals(dto.getType())));
+    }
+
+    @Test
+    public void testCreateEntity_FullIngestQueue() throws Exception {
+        EavEntityDto requestDto = new EavEntityDto();
+        requestDto.setType("RejectedEntity");
+
+        when(ingestQueue.submit(any(EavEntityDto.class)))
+                .thenThrow(new IngestQueueFullException("Очередь записи заполнена, повторите запрос позже"));
+
+        mockMvc.perform(post("/api/entities")
+                        .header(EavEntityController.PREFER_HEADER, EavEntityController.RESPOND_ASYNC)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    public void testGetTicket() throws Exception {
+        EavIngestTicketDto ticket = new EavIngestTicketDto();
+        ticket.setTicket("t-2");
+        ticket.setStatus(EavIngestTicketDto.Status.APPLIED);
+        ticket.setEntityId(7L);
+        when(ingestQueue.findTicket("t-2")).thenReturn(Optional.of(ticket));
+
+        mockMvc.perform(get("/api/entities/tickets/t-2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("APPLIED"))
+                .andExpect(jsonPath("$.entityId").value(7));
+    }
+
+    @Test
+    public void testCreateEntitiesBulk_JsonArray() throws Exception {
+        doReturn(Arrays.asList(1L, 2L), Collections.singletonList(3L)).when(eavEntityService).saveAll(anyList());
+
+        List<EavEntityDto> requestDtos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            EavEntityDto dto = new EavEntityDto();
+            dto.setType("BulkEntity" + i);
+            requestDtos.add(dto);
+        }
+
+        // Три сущности при размере порции 2 дают две порции
+        mockMvc.perform(post("/api/entities/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].received").value(2))
+                .andExpect(jsonPath("$[0].ids", hasSize(2)))
+                .andExpect(jsonPath("$[1].chunk").value(1))
+                .andExpect(jsonPath("$[1].ids[0]").value(3));
+    }
+
+    @Test
+    public void testCreateEntitiesBulk_NdjsonWithFailedChunk() throws Exception {
+        doThrow(new ResourceNotFoundException("Сущность не найдена, id: 42")).when(eavEntityService).saveAll(anyList());
+
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("BulkEntity");
+
+        mockMvc.perform(post("/api/entities/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(dto) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].received").value(1))
+                .andExpect(jsonPath("$[0].ids", hasSize(0)))
+                .andExpect(jsonPath("$[0].error").value("Сущность не найдена, id: 42"));
+    }
+
     @Test
     public void testGetEntity() throws Exception {
         EavEntityDto responseDto = new EavEntityDto();
@@ -87,6 +217,57 @@ public class EavEntityControllerTest {
                 .andExpect(jsonPath("$.type").value("TestEntity"));
     }
 
+    @Test
+    public void testGetIncomingRelations() throws Exception {
+        EavIncomingRelationDto relation = new EavIncomingRelationDto();
+        relation.setId(21L);
+        relation.setRelationType("linked_to");
+        relation.setSourceId(3L);
+        relation.setSourceType("Source");
+        EavIncomingRelationPageDto page = new EavIncomingRelationPageDto();
+        page.getItems().add(relation);
+        page.setNextCursor("21");
+
+        when(eavEntityService.findIncoming(5L, 20L, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/entities/5/incoming")
+                        .param("after", "20")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(EavEntityController.NEXT_CURSOR_HEADER, "21"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].sourceId").value(3))
+                .andExpect(jsonPath("$[0].relationType").value("linked_to"));
+    }
+
+    @Test
+    public void testGetGraph() throws Exception {
+        EavGraphNodeDto node = new EavGraphNodeDto();
+        node.setId(1L);
+        node.setType("Root");
+        EavGraphEdgeDto edge = new EavGraphEdgeDto();
+        edge.setId(5L);
+        edge.setSourceId(1L);
+        edge.setTargetId(1L);
+        edge.setRelationType("self");
+        EavGraphDto graph = new EavGraphDto();
+        graph.setRootId(1L);
+        graph.setDepth(3);
+        graph.getNodes().add(node);
+        graph.getEdges().add(edge);
+
+        when(eavEntityService.findGraph(1L, 3, "self")).thenReturn(graph);
+
+        mockMvc.perform(get("/api/entities/1/graph")
+                        .param("depth", "3")
+                        .param("relationType", "self"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rootId").value(1))
+                .andExpect(jsonPath("$.nodes", hasSize(1)))
+                .andExpect(jsonPath("$.edges[0].sourceId").value(1))
+                .andExpect(jsonPath("$.edges[0].relationType").value("self"));
+    }
+
     @Test
     public void testGetEntitiesByType() throws Exception {
         EavEntityDto dto = new EavEntityDto();
@@ -123,6 +304,88 @@ public class EavEntityControllerTest {
                 .andExpect(jsonPath("$[0].type").value("SearchEntity"));
     }
 
+    @Test
+    public void testGetEntitiesWithAttributeParameters() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(8L);
+        dto.setType("RedOrLarge");
+
+        doReturn(Collections.singletonList(dto)).when(eavEntityService).findAll(argThat((EavEntityFilter filter) ->
+                filter != null && filter.getMatch() == EavEntityFilter.Match.ANY
+                        && filter.getAttributeFilters().size() == 2
+                        && "color".equals(filter.getAttributeFilters().get(0).getName())
+                        && Arrays.asList("red", "blue").equals(filter.getAttributeFilters().get(0).getIn())
+                        && "size".equals(filter.getAttributeFilters().get(1).getName())
+                        && "L".equals(filter.getAttributeFilters().get(1).getEq())));
+
+        mockMvc.perform(get("/api/entities")
+                        .param("attr.color", "red", "blue")
+                        .param("attr.size", "L")
+                        .param("match", "ANY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("RedOrLarge"));
+    }
+
+    @Test
+    public void testGetEntitiesWithInclude() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(6L);
+        dto.setType("ListedEntity");
+        dto.setRelations(null);
+
+        // Без критериев поиска include всё равно направляет запрос в findAll(filter)
+        doReturn(Collections.singletonList(dto)).when(eavEntityService).findAll(argThat((EavEntityFilter filter) ->
+                filter != null && filter.getIncludes().equals(EnumSet.of(EavEntityInclude.ATTRIBUTES))));
+
+        mockMvc.perform(get("/api/entities")
+                        .param("include", "attributes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("ListedEntity"))
+                .andExpect(jsonPath("$[0].attributes").isArray())
+                .andExpect(jsonPath("$[0].relations").doesNotExist());
+    }
+
+    @Test
+    public void testGetEntitiesWithEmptyInclude() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(7L);
+        dto.setType("SummaryEntity");
+        dto.setAttributes(null);
+        dto.setRelations(null);
+
+        doReturn(Collections.singletonList(dto)).when(eavEntityService).findAll(argThat((EavEntityFilter filter) ->
+                filter != null && filter.isProjected() && filter.getIncludes().isEmpty()));
+
+        mockMvc.perform(get("/api/entities")
+                        .param("include", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].attributes").doesNotExist())
+                .andExpect(jsonPath("$[0].relations").doesNotExist());
+    }
+
+    @Test
+    public void testGetEntitiesWithAttributeFilter() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(4L);
+        dto.setType("PricedEntity");
+
+        when(eavEntityService.findAll(argThat((EavEntityFilter filter) -> filter != null && filter.getAttributeFilters().size() == 1
+                && "price".equals(filter.getAttributeFilters().get(0).getName())
+                && filter.getAttributeFilters().get(0).getType() == EavValueType.DOUBLE
+                && "100".equals(filter.getAttributeFilters().get(0).getGt()))))
+                .thenReturn(Collections.singletonList(dto));
+
+        mockMvc.perform(get("/api/entities")
+                        .param("attributeFilters[0].name", "price")
+                        .param("attributeFilters[0].type", "DOUBLE")
+                        .param("attributeFilters[0].gt", "100")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].type").value("PricedEntity"));
+    }
+
     @Test
     public void testGetAllEntities() throws Exception {
         EavEntityDto dto1 = new EavEntityDto();
@@ -145,6 +408,81 @@ public class EavEntityControllerTest {
                 .andExpect(jsonPath("$[1].type").value("Entity2"));
     }
 
+    @Test
+    public void testGetEntitiesPage() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(3L);
+        dto.setType("PagedEntity");
+
+        EavEntityPageDto page = new EavEntityPageDto();
+        page.setItems(Collections.singletonList(dto));
+        page.setNextCursor("cursor-2");
+
+        when(eavEntityService.findPage(any(EavEntityFilter.class))).thenReturn(page);
+
+        mockMvc.perform(get("/api/entities")
+                        .param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(EavEntityController.NEXT_CURSOR_HEADER, "cursor-2"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].type").value("PagedEntity"));
+    }
+
+    @Test
+    public void testGetEntitiesFullTextSearchIsPaged() throws Exception {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setId(4L);
+        dto.setType("RedShirt");
+
+        EavEntityPageDto page = new EavEntityPageDto();
+        page.setItems(Collections.singletonList(dto));
+        page.setNextCursor("cursor-3");
+
+        when(eavEntityService.findPage(argThat(filter -> filter != null && filter.isFullText() && "red shirt".equals(filter.getSearch()))))
+                .thenReturn(page);
+
+        // Без limit полнотекстовый поиск тоже отдаётся страницей: курсор приходит только из findPage
+        mockMvc.perform(get("/api/entities")
+                        .param("search", "red shirt")
+                        .param("searchMode", "FULL_TEXT")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(EavEntityController.NEXT_CURSOR_HEADER, "cursor-3"))
+                .andExpect(jsonPath("$[0].type").value("RedShirt"));
+    }
+
+    @Test
+    public void testExportEntities() throws Exception {
+        EavEntityDto dto1 = new EavEntityDto();
+        dto1.setId(1L);
+        dto1.setType("ExportEntity");
+
+        EavEntityDto dto2 = new EavEntityDto();
+        dto2.setId(2L);
+        dto2.setType("ExportEntity");
+
+        doAnswer(invocation -> {
+            Consumer<EavEntityDto> consumer = invocation.getArgument(1);
+            consumer.accept(dto1);
+            consumer.accept(dto2);
+            return null;
+        }).when(eavEntityService).exportByType(eq("ExportEntity"), any());
+
+        MvcResult result = mockMvc.perform(get("/api/entities/export")
+                        .param("type", "ExportEntity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Каждая сущность — отдельная строка JSON
+        String expected = objectMapper.writeValueAsString(dto1) + "\n" + objectMapper.writeValueAsString(dto2) + "\n";
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expected));
+    }
+
     @Test
     public void testUpdateEntity() throws Exception {
         EavEntityDto updateDto = new EavEntityDto();
@@ -164,6 +502,84 @@ public class EavEntityControllerTest {
                 .andExpect(jsonPath("$.type").value("UpdatedEntity"));
     }
 
+    @Test
+    public void testGetEntity_VersionAsETag() throws Exception {
+        EavEntityDto responseDto = new EavEntityDto();
+        responseDto.setId(1L);
+        responseDto.setType("VersionedEntity");
+        responseDto.setVersion(3L);
+
+        when(eavEntityService.findById(1L)).thenReturn(responseDto);
+
+        mockMvc.perform(get("/api/entities/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    public void testUpdateEntity_IfMatchBecomesExpectedVersion() throws Exception {
+        EavEntityDto updateDto = new EavEntityDto();
+        updateDto.setType("UpdatedEntity");
+        // Версия из тела игнорируется: условие задаёт только If-Match
+        updateDto.setVersion(1L);
+
+        EavEntityDto responseDto = new EavEntityDto();
+        responseDto.setId(1L);
+        responseDto.setType("UpdatedEntity");
+        responseDto.setVersion(4L);
+
+        when(eavEntityService.update(eq(1L), argThat(dto -> Long.valueOf(3L).equals(dto.getVersion()))))
+                .thenReturn(responseDto);
+
+        mockMvc.perform(put("/api/entities/1")
+                        .header("If-Match", "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    public void testPatchEntity_StaleIfMatch() throws Exception {
+        when(eavEntityService.patch(eq(1L), argThat(patch -> Long.valueOf(2L).equals(patch.getVersion()))))
+                .thenThrow(new PreconditionFailedException("Версия сущности 1 — 3, ожидалась 2"));
+
+        mockMvc.perform(patch("/api/entities/1")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new EavEntityPatchDto())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testPatchEntity_UnknownIfMatch() throws Exception {
+        mockMvc.perform(patch("/api/entities/1")
+                        .header("If-Match", "\"not-a-version\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new EavEntityPatchDto())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testPatchEntity() throws Exception {
+        EavEntityPatchDto patchDto = new EavEntityPatchDto();
+        patchDto.getRemoveAttributes().add("color");
+
+        EavEntityDto responseDto = new EavEntityDto();
+        responseDto.setId(1L);
+        responseDto.setType("PatchedEntity");
+
+        when(eavEntityService.patch(eq(1L), any(EavEntityPatchDto.class))).thenReturn(responseDto);
+
+        mockMvc.perform(patch("/api/entities/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patchDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.type").value("PatchedEntity"));
+    }
+
     @Test
     public void testDeleteEntity() throws Exception {
         doNothing().when(eavEntityService).deleteEntity(1L);
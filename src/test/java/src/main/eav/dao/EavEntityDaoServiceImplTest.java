@@ -1,22 +1,36 @@
 package src.main.eav.dao;
 
-import org.mockito.ArgumentMatchers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import src.main.eav.controller.filter.EavAttributeFilter;
 import src.main.eav.controller.filter.EavEntityFilter;
+import src.main.eav.controller.filter.EavEntitySearchCursor;
+import src.main.eav.error.BadRequestException;
 import src.main.eav.dao.impl.EavEntityDaoServiceImpl;
 import src.main.eav.model.EavEntity;
 import src.main.eav.repository.EavEntityRepository;
+import src.main.eav.repository.EavRelationRepository;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.repository.projection.EavGraphRow;
+import src.main.eav.repository.projection.EavIncomingRelation;
 import src.main.eav.dao.specification.EavEntitySpecification;
+import src.main.eav.dictionary.EavAttributeDictionary;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class EavEntityDaoServiceImplTest {
@@ -24,9 +38,15 @@ public class EavEntityDaoServiceImplTest {
     @Mock
     private EavEntityRepository repository;
 
+    @Mock
+    private EavRelationRepository relationRepository;
+
     @Mock
     private EavEntitySpecification specification;
 
+    @Mock
+    private EavAttributeDictionary attributeDictionary;
+
     private EavEntityDaoService daoService;
 
     private AutoCloseable closeable;
@@ -34,7 +54,8 @@ public class EavEntityDaoServiceImplTest {
     @BeforeMethod
     public void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
-        daoService = new EavEntityDaoServiceImpl(repository, specification);
+        daoService = new EavEntityDaoServiceImpl(repository, relationRepository, specification, attributeDictionary,
+                new SimpleMeterRegistry(), false);
     }
 
     @AfterMethod
@@ -73,8 +94,7 @@ public class EavEntityDaoServiceImplTest {
 
         List<EavEntity> entityList = Collections.singletonList(entity);
 
-        // Явно указываем, что аргумент any() следует трактовать как Specification<EavEntity>
-        when(repository.findAll(ArgumentMatchers.<Specification<EavEntity>>any())).thenReturn(entityList);
+        when(repository.findAllByType(type)).thenReturn(entityList);
 
         List<EavEntity> result = daoService.findByType(type);
 
@@ -82,7 +102,7 @@ public class EavEntityDaoServiceImplTest {
         Assert.assertEquals(result.size(), 1, "Должна быть возвращена одна сущность");
         Assert.assertEquals(result.get(0).getType(), type, "Тип сущности должен совпадать");
 
-        verify(repository, times(1)).findAll(ArgumentMatchers.<Specification<EavEntity>>any());
+        verify(repository, times(1)).findAllByType(type);
     }
 
     @Test
@@ -111,6 +131,91 @@ public class EavEntityDaoServiceImplTest {
         verify(repository, times(1)).findAll();
     }
 
+    @Test
+    public void testFindAll_LoadsOnlyRequestedCollections() {
+        EavEntityFilter filter = new EavEntityFilter().setInclude(Collections.singletonList("relations"));
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getFilter(filter)).thenReturn(specMock);
+
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        List<Long> ids = Collections.singletonList(1L);
+        when(repository.findIds(specMock, 0)).thenReturn(ids);
+        when(repository.findAllWithRelationsByIdIn(array(ids))).thenReturn(Collections.singletonList(entity));
+
+        List<EavEntity> result = daoService.findAll(filter);
+
+        Assert.assertEquals(result.size(), 1);
+        verify(repository, times(1)).findAllWithRelationsByIdIn(array(ids));
+        verify(repository, never()).findAllWithAttributesByIdIn(any());
+    }
+
+    @Test
+    public void testFindAll_HydratesAnyNumberOfIdsWithOneQuery() {
+        EavEntityFilter filter = new EavEntityFilter().setInclude(Collections.singletonList("relations"));
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getFilter(filter)).thenReturn(specMock);
+
+        List<Long> ids = new ArrayList<>();
+        List<EavEntity> entities = new ArrayList<>();
+        for (long id = 1201; id >= 1; id--) {
+            ids.add(id);
+            EavEntity entity = new EavEntity();
+            entity.setId(id);
+            entities.add(0, entity);
+        }
+        when(repository.findIds(specMock, 0)).thenReturn(ids);
+        when(repository.findAllWithRelationsByIdIn(array(ids))).thenReturn(entities);
+
+        List<EavEntity> result = daoService.findAll(filter);
+
+        // id передаются одним параметром-массивом, поэтому запрос один при любом размере выборки
+        verify(repository, times(1)).findAllWithRelationsByIdIn(any());
+        Assert.assertEquals(result.size(), 1201);
+        Assert.assertEquals(result.get(0).getId(), Long.valueOf(1201L), "Порядок первого этапа должен сохраниться");
+        Assert.assertEquals(result.get(1200).getId(), Long.valueOf(1L), "Порядок первого этапа должен сохраниться");
+    }
+
+    @Test
+    public void testFindAll_AttributesFromDocument() {
+        EavEntityDaoService documentDaoService =
+                new EavEntityDaoServiceImpl(repository, relationRepository, specification, attributeDictionary,
+                new SimpleMeterRegistry(), true);
+        EavEntityFilter filter = new EavEntityFilter().setInclude(Collections.singletonList("attributes"));
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getFilter(filter)).thenReturn(specMock);
+
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        List<Long> ids = Collections.singletonList(1L);
+        when(repository.findIds(specMock, 0)).thenReturn(ids);
+        when(repository.findAllByIdIn(array(ids))).thenReturn(Collections.singletonList(entity));
+
+        List<EavEntity> result = documentDaoService.findAll(filter);
+
+        Assert.assertEquals(result.size(), 1);
+        // Атрибуты приходят в jsonb-копии вместе со строкой сущности
+        verify(repository, times(1)).findAllByIdIn(array(ids));
+        verify(repository, never()).findAllWithAttributesByIdIn(any());
+    }
+
+    @Test
+    public void testFindSummaryPage() {
+        EavEntityFilter filter = new EavEntityFilter().setLimit(2).setInclude(Collections.emptyList());
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getPage(filter)).thenReturn(specMock);
+        when(repository.findSummaries(specMock, 3)).thenReturn(Arrays.asList(
+                new EavEntitySummary(1L, "A"), new EavEntitySummary(2L, "B"), new EavEntitySummary(3L, "C")));
+
+        Slice<EavEntitySummary> slice = daoService.findSummaryPage(filter);
+
+        Assert.assertEquals(slice.getNumberOfElements(), 2);
+        Assert.assertTrue(slice.hasNext());
+        // Проекция не догружает ни сущности, ни коллекции
+        verify(repository, never()).findAllWithAttributesByIdIn(any());
+        verify(repository, never()).findAllWithRelationsByIdIn(any());
+    }
+
     @Test
     public void testFindAll_WithFilter() {
         EavEntityFilter filter = new EavEntityFilter();
@@ -118,24 +223,109 @@ public class EavEntityDaoServiceImplTest {
         Specification<EavEntity> specMock = mock(Specification.class);
         when(specification.getFilter(filter)).thenReturn(specMock);
 
-        EavEntity entity = new EavEntity();
-        entity.setId(1L);
-        entity.setType("FilteredEntity");
-        entity.setAttributes(new HashSet<>());
-        entity.setRelations(new HashSet<>());
+        EavEntity entity1 = new EavEntity();
+        entity1.setId(1L);
+        entity1.setType("FilteredEntity1");
+        entity1.setAttributes(new HashSet<>());
+        entity1.setRelations(new HashSet<>());
 
-        List<EavEntity> entityList = Collections.singletonList(entity);
+        EavEntity entity2 = new EavEntity();
+        entity2.setId(2L);
+        entity2.setType("FilteredEntity2");
+        entity2.setAttributes(new HashSet<>());
+        entity2.setRelations(new HashSet<>());
 
-        when(repository.findAll(specMock)).thenReturn(entityList);
+        // Первый этап возвращает отсортированные id, второй — сущности в произвольном порядке
+        List<Long> ids = Arrays.asList(2L, 1L);
+        when(repository.findIds(specMock, 0)).thenReturn(ids);
+        when(repository.findAllWithAttributesByIdIn(array(ids))).thenReturn(Arrays.asList(entity1, entity2));
+        when(repository.findAllWithRelationsByIdIn(array(ids))).thenReturn(Arrays.asList(entity1, entity2));
 
         List<EavEntity> result = daoService.findAll(filter);
 
         Assert.assertNotNull(result, "Список сущностей не должен быть null");
-        Assert.assertEquals(result.size(), 1, "Должна быть возвращена одна сущность");
-        Assert.assertEquals(result.get(0).getType(), "FilteredEntity", "Тип сущности должен совпадать");
+        Assert.assertEquals(result.size(), 2, "Должны быть возвращены две сущности");
+        Assert.assertEquals(result.get(0).getId(), Long.valueOf(2L), "Порядок первого этапа должен сохраниться");
+        Assert.assertEquals(result.get(1).getId(), Long.valueOf(1L), "Порядок первого этапа должен сохраниться");
 
         verify(specification, times(1)).getFilter(filter);
-        verify(repository, times(1)).findAll(specMock);
+        verify(repository, times(1)).findIds(specMock, 0);
+        verify(repository, times(1)).findAllWithAttributesByIdIn(array(ids));
+        verify(repository, times(1)).findAllWithRelationsByIdIn(array(ids));
+    }
+
+    @Test
+    public void testFindAll_WithFilter_NoMatches() {
+        EavEntityFilter filter = new EavEntityFilter().setSearch("missing");
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getFilter(filter)).thenReturn(specMock);
+        when(repository.findIds(specMock, 0)).thenReturn(Collections.emptyList());
+
+        List<EavEntity> result = daoService.findAll(filter);
+
+        Assert.assertTrue(result.isEmpty(), "Список сущностей должен быть пустым");
+        // Без найденных id второй этап не выполняется
+        verify(repository, never()).findAllWithAttributesByIdIn(any());
+        verify(repository, never()).findAllWithRelationsByIdIn(any());
+    }
+
+    @Test
+    public void testFindPage_HasNext() {
+        EavEntityFilter filter = new EavEntityFilter().setLimit(1);
+        Specification<EavEntity> specMock = mock(Specification.class);
+        when(specification.getPage(filter)).thenReturn(specMock);
+
+        EavEntity entity1 = new EavEntity();
+        entity1.setId(1L);
+        entity1.setType("Entity1");
+
+        // Первый этап возвращает limit + 1 id — признак наличия следующей страницы
+        when(repository.findIds(specMock, 2)).thenReturn(Arrays.asList(1L, 2L));
+        when(repository.findAllWithAttributesByIdIn(new Long[]{1L}))
+                .thenReturn(Collections.singletonList(entity1));
+
+        Slice<EavEntity> result = daoService.findPage(filter);
+
+        Assert.assertEquals(result.getNumberOfElements(), 1, "Страница должна быть обрезана до limit");
+        Assert.assertTrue(result.hasNext(), "Должна существовать следующая страница");
+        Assert.assertEquals(result.getContent().get(0).getType(), "Entity1", "Тип сущности должен совпадать");
+
+        verify(specification, times(1)).getPage(filter);
+        verify(repository, times(1)).findAllWithRelationsByIdIn(new Long[]{1L});
+    }
+
+    @Test
+    public void testFindGraph() {
+        List<EavGraphRow> rows = Collections.singletonList(new EavGraphRow(1L, "Root", 0, null, null, null));
+        when(repository.findGraph(1L, 2, "linked_to")).thenReturn(rows);
+
+        Assert.assertSame(daoService.findGraph(1L, 2, "linked_to"), rows);
+        verify(repository, times(1)).findGraph(1L, 2, "linked_to");
+    }
+
+    @Test
+    public void testForEachByType() {
+        EavEntity entity1 = new EavEntity();
+        entity1.setId(1L);
+        entity1.setType("ExportEntity");
+
+        EavEntity entity2 = new EavEntity();
+        entity2.setId(2L);
+        entity2.setType("ExportEntity");
+
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(repository.streamByType("ExportEntity")).thenReturn(Stream.of(entity1, entity2));
+        when(repository.findAllWithAttributesByIdIn(array(ids))).thenReturn(Arrays.asList(entity1, entity2));
+
+        List<EavEntity> processed = new ArrayList<>();
+        daoService.forEachByType("ExportEntity", processed::add);
+
+        Assert.assertEquals(processed.size(), 2, "Должны быть обработаны две сущности");
+        // Коллекции догружаются одной порцией, после обработки сущности отсоединяются
+        verify(repository, times(1)).findAllWithRelationsByIdIn(array(ids));
+        verify(repository, times(1)).detach(entity1);
+        verify(repository, times(1)).detach(entity2);
+        verify(repository, never()).streamAllBy();
     }
 
     @Test
@@ -176,20 +366,91 @@ public class EavEntityDaoServiceImplTest {
         updatedEntity.setAttributes(new HashSet<>());
         updatedEntity.setRelations(new HashSet<>());
 
-        when(repository.save(entity)).thenReturn(updatedEntity);
+        when(repository.saveAndFlush(entity)).thenReturn(updatedEntity);
 
         EavEntity result = daoService.edit(entity);
 
         Assert.assertNotNull(result, "Измененная сущность не должна быть null");
         Assert.assertEquals(result.getType(), "UpdatedEntity", "Тип сущности должен быть обновлен");
 
-        verify(repository, times(1)).save(entity);
+        verify(repository, times(1)).saveAndFlush(entity);
     }
 
     @Test
     public void testDeleteEntity() {
         Long id = 3L;
         daoService.deleteEntity(id);
+        verify(relationRepository, times(1)).deleteIncoming(id);
         verify(repository, times(1)).deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindIncoming_HasNext() {
+        when(relationRepository.findIncoming(eq(7L), eq(0L), any())).thenReturn(Arrays.asList(
+                new EavIncomingRelation(1L, "linked_to", 10L, "A"),
+                new EavIncomingRelation(2L, "linked_to", 11L, "B"),
+                new EavIncomingRelation(3L, "linked_to", 12L, "C")));
+
+        Slice<EavIncomingRelation> slice = daoService.findIncoming(7L, null, 2);
+
+        Assert.assertEquals(slice.getNumberOfElements(), 2);
+        Assert.assertTrue(slice.hasNext());
+        verify(relationRepository).findIncoming(7L, 0L, Limit.of(3));
+    }
+
+    @Test
+    public void testFindSearchPage_FirstPageRequestsOneExtraHit() {
+        EavEntityFilter filter = new EavEntityFilter().setSearch("red shirt")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2);
+        when(repository.search("red shirt", null, null, 3)).thenReturn(Arrays.asList(
+                new EavEntitySearchHit(5L, "A", 0.9f),
+                new EavEntitySearchHit(3L, "B", 0.5f),
+                new EavEntitySearchHit(4L, "C", 0.5f)));
+
+        Slice<EavEntitySearchHit> slice = daoService.findSearchPage(filter);
+
+        Assert.assertEquals(slice.getNumberOfElements(), 2);
+        Assert.assertTrue(slice.hasNext());
+        Assert.assertEquals(slice.getContent().get(1).getId(), Long.valueOf(3L));
+        verify(repository, never()).findIds(any(), anyInt());
+    }
+
+    @Test
+    public void testFindSearchPage_ContinuesAfterCursor() {
+        String cursor = new EavEntitySearchCursor(0.5f, 3L).encode();
+        EavEntityFilter filter = new EavEntityFilter().setSearch("shirt")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2).setAfter(cursor);
+        when(repository.search("shirt", 0.5f, 3L, 3)).thenReturn(Collections.singletonList(
+                new EavEntitySearchHit(4L, "C", 0.5f)));
+
+        Slice<EavEntitySearchHit> slice = daoService.findSearchPage(filter);
+
+        Assert.assertEquals(slice.getNumberOfElements(), 1);
+        Assert.assertFalse(slice.hasNext());
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindSearchPage_BlankQuery() {
+        daoService.findSearchPage(new EavEntityFilter().setSearch(" ")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2));
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindSearchPage_AttributeFiltersRejected() {
+        EavEntityFilter filter = new EavEntityFilter().setSearch("shirt")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2);
+        filter.getAttributeFilters().add(new EavAttributeFilter().setName("color").setEq("red"));
+
+        daoService.findSearchPage(filter);
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindSearchPage_MalformedCursor() {
+        daoService.findSearchPage(new EavEntityFilter().setSearch("shirt")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2).setAfter("bm90LWEtY3Vyc29y"));
+    }
+
+    private static Long[] array(List<Long> ids) {
+        return ids.toArray(new Long[0]);
+    }
+}
@@ -0,0 +1,126 @@
+package src.main.eav.dictionary;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class EavAttributeDictionaryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AutoCloseable closeable;
+
+    private EavAttributeDictionary dictionary;
+
+    @BeforeMethod
+    public void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        dictionary = new EavAttributeDictionary(jdbcTemplate, "aev", "maximumSize=100,expireAfterWrite=1m");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        closeable.close();
+    }
+
+    @Test
+    public void testIdOf_MissIsCached() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id"), eq(Integer.class), eq("unknown")))
+                .thenReturn(Collections.emptyList());
+
+        Assert.assertNull(dictionary.idOf("unknown"));
+        Assert.assertNull(dictionary.idOf("unknown"));
+
+        verify(jdbcTemplate, times(1)).queryForList(startsWith("SELECT id"), eq(Integer.class), eq("unknown"));
+    }
+
+    @Test
+    public void testInternAll_WithoutTransactionRemembersImmediately() {
+        when(jdbcTemplate.queryForList(startsWith("INSERT"), eq(Integer.class), eq("color")))
+                .thenReturn(List.of(7));
+
+        dictionary.internAll(List.of("color"));
+
+        Assert.assertEquals(dictionary.idOf("color"), Integer.valueOf(7));
+        Assert.assertEquals(dictionary.size(), 1);
+    }
+
+    @Test
+    public void testInternAll_InTransactionRemembersAfterCommit() {
+        when(jdbcTemplate.queryForList(startsWith("INSERT"), eq(Integer.class), eq("color")))
+                .thenReturn(List.of(7));
+        TransactionSynchronizationManager.initSynchronization();
+
+        dictionary.internAll(List.of("color", "color"));
+
+        // До коммита имя видно только этой транзакции
+        Assert.assertEquals(dictionary.idOf("color"), Integer.valueOf(7));
+        Assert.assertEquals(dictionary.nameOf(7), "color");
+        Assert.assertEquals(dictionary.size(), 0);
+        complete(true);
+
+        Assert.assertEquals(dictionary.size(), 1);
+        Assert.assertEquals(dictionary.idOf("color"), Integer.valueOf(7));
+        verify(jdbcTemplate, times(1)).queryForList(startsWith("INSERT"), eq(Integer.class), eq("color"));
+        verify(jdbcTemplate, never()).queryForList(startsWith("SELECT id"), eq(Integer.class), eq("color"));
+    }
+
+    @Test
+    public void testInternAll_RollbackForgetsName() {
+        when(jdbcTemplate.queryForList(startsWith("INSERT"), eq(Integer.class), eq("color")))
+                .thenReturn(List.of(7));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id"), eq(Integer.class), eq("color")))
+                .thenReturn(Collections.emptyList());
+        TransactionSynchronizationManager.initSynchronization();
+
+        dictionary.internAll(List.of("color"));
+        complete(false);
+
+        Assert.assertEquals(dictionary.size(), 0);
+        Assert.assertNull(dictionary.idOf("color"));
+    }
+
+    @Test
+    public void testInternAll_CommittedByOtherTransaction() {
+        when(jdbcTemplate.queryForList(startsWith("INSERT"), eq(Integer.class), eq("color")))
+                .thenReturn(Collections.emptyList());
+        when(jdbcTemplate.queryForObject(startsWith("SELECT id"), eq(Integer.class), eq("color"))).thenReturn(3);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dictionary.internAll(List.of("color"));
+
+        // Чужая строка уже зафиксирована, поэтому кэшируется сразу
+        Assert.assertEquals(dictionary.size(), 1);
+        Assert.assertEquals(dictionary.idOf("color"), Integer.valueOf(3));
+        Assert.assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    private static void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (committed) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(committed
+                    ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+}
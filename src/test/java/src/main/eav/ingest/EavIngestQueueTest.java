@@ -0,0 +1,145 @@
+package src.main.eav.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavIngestTicketDto;
+import src.main.eav.error.IngestQueueFullException;
+import src.main.eav.service.EavEntityService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class EavIngestQueueTest {
+
+    @Mock
+    private EavEntityService eavEntityService;
+
+    private SimpleMeterRegistry registry;
+
+    private EavIngestQueue queue;
+
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+        closeable.close();
+    }
+
+    @Test
+    public void testSubmit_BatchAppliedWithSingleSaveAll() throws Exception {
+        queue = new EavIngestQueue(eavEntityService, registry, 10, 1, 10, 1000, "maximumSize=100");
+        when(eavEntityService.saveAll(anyList())).thenReturn(Arrays.asList(11L, 12L));
+
+        // Очередь запускается после постановки заявок, поэтому обе попадают в один пакет
+        EavIngestTicketDto first = queue.submit(entity("first"));
+        EavIngestTicketDto second = queue.submit(entity("second"));
+        Assert.assertEquals(first.getStatus(), EavIngestTicketDto.Status.QUEUED);
+        queue.start();
+
+        Assert.assertEquals(awaitProcessed(first.getTicket()).getEntityId(), Long.valueOf(11L));
+        Assert.assertEquals(awaitProcessed(second.getTicket()).getEntityId(), Long.valueOf(12L));
+        verify(eavEntityService, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    public void testSubmit_FailedBatchIsRetriedOneByOne() throws Exception {
+        queue = new EavIngestQueue(eavEntityService, registry, 10, 1, 10, 1000, "maximumSize=100");
+        EavEntityDto good = entity("good");
+        EavEntityDto bad = entity("bad");
+        when(eavEntityService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<EavEntityDto> dtos = invocation.getArgument(0);
+            if (dtos.contains(bad)) {
+                throw new IllegalStateException("duplicate type");
+            }
+            return Collections.singletonList(21L);
+        });
+
+        EavIngestTicketDto goodTicket = queue.submit(good);
+        EavIngestTicketDto badTicket = queue.submit(bad);
+        queue.start();
+
+        EavIngestTicketDto applied = awaitProcessed(goodTicket.getTicket());
+        Assert.assertEquals(applied.getStatus(), EavIngestTicketDto.Status.APPLIED);
+        Assert.assertEquals(applied.getEntityId(), Long.valueOf(21L));
+        EavIngestTicketDto failed = awaitProcessed(badTicket.getTicket());
+        Assert.assertEquals(failed.getStatus(), EavIngestTicketDto.Status.FAILED);
+        Assert.assertEquals(failed.getError(), "duplicate type");
+        verify(eavEntityService, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    public void testSubmit_FullQueueRejected() throws Exception {
+        queue = new EavIngestQueue(eavEntityService, registry, 1, 1, 10, 1000, "maximumSize=100");
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(eavEntityService.saveAll(anyList())).thenAnswer(invocation -> {
+            saving.countDown();
+            release.await();
+            return Collections.singletonList(1L);
+        });
+        queue.start();
+
+        // Первая заявка занимает рабочий поток, вторая — единственное место в очереди
+        queue.submit(entity("first"));
+        Assert.assertTrue(saving.await(5, TimeUnit.SECONDS));
+        queue.submit(entity("second"));
+
+        Assert.assertThrows(IngestQueueFullException.class, () -> queue.submit(entity("third")));
+        Assert.assertEquals(registry.counter("eav.ingest.rejected").count(), 1.0);
+        Assert.assertEquals(registry.get("eav.ingest.queue.size").gauge().value(), 1.0);
+        release.countDown();
+    }
+
+    @Test
+    public void testStop_DrainsQueueAndRejectsNewSubmissions() throws Exception {
+        queue = new EavIngestQueue(eavEntityService, registry, 10, 1, 10, 1000, "maximumSize=100");
+        when(eavEntityService.saveAll(anyList())).thenReturn(Collections.singletonList(31L));
+        queue.start();
+        EavIngestTicketDto ticket = queue.submit(entity("pending"));
+
+        queue.stop();
+
+        Assert.assertEquals(queue.findTicket(ticket.getTicket()).get().getStatus(), EavIngestTicketDto.Status.APPLIED);
+        Assert.assertThrows(IngestQueueFullException.class, () -> queue.submit(entity("late")));
+        queue = null;
+    }
+
+    private EavIngestTicketDto awaitProcessed(String ticket) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            EavIngestTicketDto status = queue.findTicket(ticket).orElseThrow();
+            if (status.getStatus() != EavIngestTicketDto.Status.QUEUED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Заявка не обработана: " + ticket);
+    }
+
+    private static EavEntityDto entity(String type) {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType(type);
+        return dto;
+    }
+}
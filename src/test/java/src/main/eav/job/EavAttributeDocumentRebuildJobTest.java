@@ -0,0 +1,74 @@
+package src.main.eav.job;
+
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dao.EavEntityDaoService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class EavAttributeDocumentRebuildJobTest {
+
+    @Mock
+    private EavEntityDaoService daoService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
+    private EavAttributeDocumentRebuildJob job;
+
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(cacheManager.getCache(CacheConfig.ENTITIES_CACHE)).thenReturn(cache);
+        job = new EavAttributeDocumentRebuildJob(daoService, transactionTemplate, cacheManager, 100);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    public void testRebuild_ProcessesIdRangesInSeparateTransactions() {
+        when(daoService.findMaxId()).thenReturn(250L);
+        when(daoService.rebuildAttributesDocuments(anyLong(), anyLong())).thenReturn(100, 100, 50);
+
+        int rebuilt = job.rebuild();
+
+        Assert.assertEquals(rebuilt, 250);
+        verify(daoService).rebuildAttributesDocuments(0L, 100L);
+        verify(daoService).rebuildAttributesDocuments(100L, 200L);
+        verify(daoService).rebuildAttributesDocuments(200L, 300L);
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(cache).clear();
+    }
+
+    @Test
+    public void testRebuild_EmptyTable() {
+        when(daoService.findMaxId()).thenReturn(null);
+
+        Assert.assertEquals(job.rebuild(), 0);
+        verify(daoService, never()).rebuildAttributesDocuments(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,61 @@
+package src.main.eav.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import src.main.eav.error.SqlStatementBudgetExceededException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SqlStatementMetricsFilterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SqlStatementMetricsFilter filter = new SqlStatementMetricsFilter(counter, registry);
+
+    @Test
+    public void recordsStatementsPerRequestByRoutePattern() throws Exception {
+        // Операторы, оставшиеся от предыдущей работы потока, не должны попасть в запрос
+        counter.inspect("select 0");
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/entities/" + i);
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/entities/{id}");
+                counter.inspect("select 1");
+                counter.inspect("select 2");
+            });
+        }
+
+        DistributionSummary summary = registry.find(SqlStatementMetricsFilter.METRIC_NAME)
+                .tag("method", "GET")
+                .tag("uri", "/api/entities/{id}")
+                .summary();
+        assertNotNull(summary);
+        assertEquals(2, summary.count());
+        assertEquals(4.0, summary.totalAmount());
+        assertEquals(2.0, summary.max());
+    }
+
+    @Test
+    public void budgetInFailModeStopsRequestAndIsLiftedAfterIt() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/entities");
+
+        assertThrows(SqlStatementBudgetExceededException.class, () ->
+                filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                    counter.setBudget(1, true);
+                    counter.inspect("select 1");
+                    counter.inspect("select 2");
+                }));
+        assertEquals(2, counter.getCount());
+
+        // Вне запроса бюджет не действует
+        counter.inspect("select 3");
+        assertEquals(SqlStatementCounter.NO_BUDGET, counter.getBudget());
+    }
+}
@@ -0,0 +1,93 @@
+package src.main.eav.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReadYourWritesFilterTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+
+    @Test
+    public void testWrite_SetsCookieAndUsesPrimary() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter("EAV_PRIMARY_UNTIL", 3000, clock);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/entities");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, response, recording(primary));
+
+        Assert.assertTrue(primary.get());
+        Cookie cookie = response.getCookie("EAV_PRIMARY_UNTIL");
+        Assert.assertNotNull(cookie);
+        Assert.assertEquals(cookie.getValue(), String.valueOf(NOW + 3000));
+        Assert.assertEquals(cookie.getMaxAge(), 3);
+        Assert.assertTrue(cookie.isHttpOnly());
+        Assert.assertFalse(ReplicaRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    public void testReadWithinWindow_UsesPrimary() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter("EAV_PRIMARY_UNTIL", 3000, clock);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/entities/1");
+        request.setCookies(new Cookie("EAV_PRIMARY_UNTIL", String.valueOf(NOW + 1)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, response, recording(primary));
+
+        Assert.assertTrue(primary.get());
+        Assert.assertNull(response.getCookie("EAV_PRIMARY_UNTIL"));
+        Assert.assertFalse(ReplicaRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    public void testReadAfterWindow_UsesReplica() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter("EAV_PRIMARY_UNTIL", 3000, clock);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/entities/1");
+        request.setCookies(new Cookie("EAV_PRIMARY_UNTIL", String.valueOf(NOW)));
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, new MockHttpServletResponse(), recording(primary));
+
+        Assert.assertFalse(primary.get());
+    }
+
+    @Test
+    public void testMalformedCookie_UsesReplica() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter("EAV_PRIMARY_UNTIL", 3000, clock);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/entities/1");
+        request.setCookies(new Cookie("EAV_PRIMARY_UNTIL", "abc"));
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(request, new MockHttpServletResponse(), recording(primary));
+
+        Assert.assertFalse(primary.get());
+    }
+
+    @Test
+    public void testZeroWindow_Disabled() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter("EAV_PRIMARY_UNTIL", 0, clock);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean primary = new AtomicBoolean();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/entities"), response, recording(primary));
+
+        Assert.assertFalse(primary.get());
+        Assert.assertNull(response.getCookie("EAV_PRIMARY_UNTIL"));
+    }
+
+    private static FilterChain recording(AtomicBoolean primary) {
+        return (request, response) -> primary.set(ReplicaRoutingContext.isPrimaryRequired());
+    }
+}
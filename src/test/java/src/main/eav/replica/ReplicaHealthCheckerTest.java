@@ -0,0 +1,103 @@
+package src.main.eav.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+public class ReplicaHealthCheckerTest {
+
+    @Mock
+    private HikariDataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private AutoCloseable closeable;
+
+    private Replica replica;
+    private ReplicaHealthChecker checker;
+
+    @BeforeMethod
+    public void setUp() throws SQLException {
+        closeable = MockitoAnnotations.openMocks(this);
+        when(dataSource.getPoolName()).thenReturn("eav-replica-0");
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaHealthChecker.HEALTH_QUERY)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        replica = new Replica(dataSource);
+        checker = new ReplicaHealthChecker(new ReplicaPool(Collections.singletonList(replica)),
+                new SimpleMeterRegistry(), 1000, 2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    public void testCheck_StreamingReplicaWithinLag() throws SQLException {
+        healthResult(true, true, 200);
+
+        checker.check(replica);
+
+        Assert.assertTrue(replica.isHealthy());
+        Assert.assertEquals(replica.getLagMs(), 200);
+    }
+
+    @Test
+    public void testCheck_LaggingReplicaMarkedDown() throws SQLException {
+        replica.markUp(0);
+        healthResult(true, true, 5000);
+
+        checker.check(replica);
+
+        Assert.assertFalse(replica.isHealthy());
+    }
+
+    @Test
+    public void testCheck_ReplicaWithoutWalReceiverMarkedDown() throws SQLException {
+        replica.markUp(0);
+        // Весь полученный WAL применён, поэтому запрос даёт нулевое отставание, но связи с основной базой нет
+        healthResult(true, false, 0);
+
+        checker.check(replica);
+
+        Assert.assertFalse(replica.isHealthy());
+    }
+
+    @Test
+    public void testCheck_FailedQueryMarksDown() throws SQLException {
+        replica.markUp(0);
+        when(statement.executeQuery(ReplicaHealthChecker.HEALTH_QUERY)).thenThrow(new SQLException("timeout"));
+
+        checker.check(replica);
+
+        Assert.assertFalse(replica.isHealthy());
+    }
+
+    private void healthResult(boolean inRecovery, boolean receiving, long lagMs) throws SQLException {
+        when(resultSet.getBoolean(1)).thenReturn(inRecovery);
+        when(resultSet.getBoolean(2)).thenReturn(receiving);
+        when(resultSet.getLong(3)).thenReturn(lagMs);
+    }
+}
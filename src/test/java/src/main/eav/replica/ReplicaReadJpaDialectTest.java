@@ -0,0 +1,61 @@
+package src.main.eav.replica;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.sql.SQLException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReplicaReadJpaDialectTest {
+
+    private EntityManager entityManager;
+    private SessionImplementor session;
+    private ReplicaReadJpaDialect dialect;
+
+    @BeforeMethod
+    public void setUp() {
+        entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(any())).thenReturn(session);
+        dialect = new ReplicaReadJpaDialect();
+    }
+
+    @Test
+    public void testBeginTransaction_ReadOnlyBypassesCacheStore() throws SQLException {
+        dialect.beginTransaction(entityManager, definition(true));
+
+        verify(session).setCacheStoreMode(CacheStoreMode.BYPASS);
+    }
+
+    @Test
+    public void testBeginTransaction_ReadOnlyOnPrimaryUsesCacheStore() {
+        ReplicaRoutingContext.onPrimary(() -> {
+            try {
+                return dialect.beginTransaction(entityManager, definition(true));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        verify(session).setCacheStoreMode(CacheStoreMode.USE);
+    }
+
+    @Test
+    public void testBeginTransaction_WriteUsesCacheStore() throws SQLException {
+        dialect.beginTransaction(entityManager, definition(false));
+
+        verify(session).setCacheStoreMode(CacheStoreMode.USE);
+    }
+
+    private static DefaultTransactionDefinition definition(boolean readOnly) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(readOnly);
+        return definition;
+    }
+}
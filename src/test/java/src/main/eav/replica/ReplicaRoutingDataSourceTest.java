@@ -0,0 +1,138 @@
+package src.main.eav.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private HikariDataSource first;
+
+    @Mock
+    private HikariDataSource second;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection firstConnection;
+
+    @Mock
+    private Connection secondConnection;
+
+    private AutoCloseable closeable;
+
+    private Replica firstReplica;
+    private Replica secondReplica;
+    private ReplicaPool pool;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeMethod
+    public void setUp() throws SQLException {
+        closeable = MockitoAnnotations.openMocks(this);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(second.getConnection()).thenReturn(secondConnection);
+        when(first.getPoolName()).thenReturn("eav-replica-0");
+        when(second.getPoolName()).thenReturn("eav-replica-1");
+        firstReplica = new Replica(first);
+        secondReplica = new Replica(second);
+        pool = new ReplicaPool(Arrays.asList(firstReplica, secondReplica));
+        routing = new ReplicaRoutingDataSource(primary, pool);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Test
+    public void testGetConnection_RoundRobinOverHealthyReplicas() throws SQLException {
+        firstReplica.markUp(0);
+        secondReplica.markUp(0);
+
+        Connection a = routing.getConnection();
+        Connection b = routing.getConnection();
+        Connection c = routing.getConnection();
+
+        Assert.assertNotSame(a, b);
+        Assert.assertSame(a, c);
+        Assert.assertTrue(a == firstConnection || a == secondConnection);
+        Assert.assertTrue(b == firstConnection || b == secondConnection);
+        verify(primary, never()).getConnection();
+        Assert.assertEquals(pool.getFallbackCount(), 0);
+    }
+
+    @Test
+    public void testGetConnection_SkipsUnhealthyReplica() throws SQLException {
+        secondReplica.markUp(0);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertSame(routing.getConnection(), secondConnection);
+        }
+        verify(first, never()).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_FailedReplicaMarkedDown() throws SQLException {
+        firstReplica.markUp(0);
+        secondReplica.markUp(0);
+        when(first.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        Assert.assertSame(routing.getConnection(), secondConnection);
+        Assert.assertSame(routing.getConnection(), secondConnection);
+        Assert.assertFalse(firstReplica.isHealthy());
+        Assert.assertTrue(secondReplica.isHealthy());
+    }
+
+    @Test
+    public void testGetConnection_NoHealthyReplicasFallsBackToPrimary() throws SQLException {
+        Assert.assertSame(routing.getConnection(), primaryConnection);
+        Assert.assertEquals(pool.getFallbackCount(), 1);
+        verify(first, never()).getConnection();
+        verify(second, never()).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_PrimaryRequired() throws SQLException {
+        firstReplica.markUp(0);
+        secondReplica.markUp(0);
+
+        Connection connection = ReplicaRoutingContext.onPrimary(() -> {
+            try {
+                return routing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Assert.assertSame(connection, primaryConnection);
+        Assert.assertFalse(ReplicaRoutingContext.isPrimaryRequired());
+        Assert.assertEquals(pool.getFallbackCount(), 0);
+        Assert.assertNotSame(routing.getConnection(), primaryConnection);
+    }
+
+    @Test
+    public void testGetConnectionWithCredentials_UsesPrimary() throws SQLException {
+        firstReplica.markUp(0);
+        when(primary.getConnection("reporter", "secret")).thenReturn(primaryConnection);
+
+        Assert.assertSame(routing.getConnection("reporter", "secret"), primaryConnection);
+        verify(first, never()).getConnection();
+    }
+}
@@ -0,0 +1,112 @@
+package src.main.eav.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.main.eav.cluster.EavCacheInvalidationPublisher;
+import src.main.eav.config.CacheConfig;
+import src.main.eav.dao.EavEntityDaoService;
+import src.main.eav.dto.EavEntityDto;
+import src.main.eav.model.EavEntity;
+import src.main.eav.service.impl.EavEntityServiceImpl;
+
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(EavEntityServiceCacheTest.TestConfig.class)
+public class EavEntityServiceCacheTest {
+
+    @Autowired
+    private EavEntityService service;
+
+    @Autowired
+    private EavEntityDaoService daoService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class TestConfig {
+        @Bean
+        public EavEntityDaoService daoService() {
+            return Mockito.mock(EavEntityDaoService.class);
+        }
+
+        @Bean
+        public EavEntityService eavEntityService(EavEntityDaoService daoService) {
+            // Без менеджера транзакций: колбэк выполняется сразу
+            TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+            when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+            when(transactionTemplate.getTransactionManager()).thenReturn(Mockito.mock(PlatformTransactionManager.class));
+            return new EavEntityServiceImpl(daoService, new SimpleMeterRegistry(), transactionTemplate,
+                    Mockito.mock(EavCacheInvalidationPublisher.class), false, 3);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        reset(daoService);
+        cacheManager.getCache(CacheConfig.ENTITIES_CACHE).clear();
+
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("CachedEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+        when(daoService.findById(1L)).thenReturn(Optional.of(entity));
+        when(daoService.edit(any(EavEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void testFindById_RepeatedReadServedFromCache() {
+        EavEntityDto first = service.findById(1L);
+        EavEntityDto second = service.findById(1L);
+
+        assertEquals("CachedEntity", first.getType());
+        assertEquals("CachedEntity", second.getType());
+        verify(daoService, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testUpdate_EvictsCachedEntity() {
+        service.findById(1L);
+
+        EavEntityDto updateDto = new EavEntityDto();
+        updateDto.setType("UpdatedEntity");
+        service.update(1L, updateDto);
+
+        EavEntityDto reloaded = service.findById(1L);
+
+        assertEquals("UpdatedEntity", reloaded.getType());
+        // Первое чтение, чтение внутри update и повторное чтение после инвалидации
+        verify(daoService, times(3)).findById(1L);
+    }
+
+    @Test
+    public void testDeleteEntity_EvictsCachedEntity() {
+        service.findById(1L);
+        service.deleteEntity(1L);
+        service.findById(1L);
+
+        verify(daoService, times(2)).findById(1L);
+    }
+}
@@ -1,26 +1,64 @@
 package src.main.eav.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import src.main.eav.cluster.EavCacheInvalidationPublisher;
+import src.main.eav.controller.filter.EavEntityCursor;
 import src.main.eav.controller.filter.EavEntityFilter;
 import src.main.eav.dao.EavEntityDaoService;
+import src.main.eav.dto.EavAttributeValueDto;
 import src.main.eav.dto.EavEntityDto;
+import src.main.eav.dto.EavEntityPageDto;
+import src.main.eav.dto.EavEntityPatchDto;
+import src.main.eav.dto.EavGraphDto;
+import src.main.eav.dto.EavIncomingRelationPageDto;
 import src.main.eav.dto.EavRelationDto;
+import src.main.eav.error.BadRequestException;
+import src.main.eav.error.ConcurrentUpdateException;
+import src.main.eav.error.PreconditionFailedException;
 import src.main.eav.error.ResourceNotFoundException;
+import src.main.eav.model.EavAttributeDocument;
+import src.main.eav.model.EavAttributeValue;
 import src.main.eav.model.EavEntity;
 import src.main.eav.model.EavRelation;
+import src.main.eav.model.EavValueType;
+import src.main.eav.replica.ReplicaRoutingContext;
+import src.main.eav.repository.projection.EavEntitySummary;
+import src.main.eav.controller.filter.EavEntitySearchCursor;
+import src.main.eav.repository.projection.EavEntitySearchHit;
+import src.main.eav.repository.projection.EavGraphRow;
+import src.main.eav.repository.projection.EavIncomingRelation;
 import src.main.eav.service.impl.EavEntityServiceImpl;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class EavEntityServiceImplTest {
@@ -28,6 +66,15 @@ public class EavEntityServiceImplTest {
     @Mock
     private EavEntityDaoService daoService;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EavCacheInvalidationPublisher cacheInvalidation;
+
     private EavEntityServiceImpl service;
 
     private AutoCloseable closeable;
@@ -35,7 +82,11 @@ public class EavEntityServiceImplTest {
     @BeforeMethod
     public void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
-        service = new EavEntityServiceImpl(daoService);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(transactionTemplate.getTransactionManager()).thenReturn(transactionManager);
+        service = new EavEntityServiceImpl(daoService, new SimpleMeterRegistry(), transactionTemplate,
+                cacheInvalidation, false, 3);
     }
 
     @AfterMethod
@@ -63,6 +114,55 @@ public class EavEntityServiceImplTest {
         verify(daoService, times(1)).findById(id);
     }
 
+    @Test
+    public void testFindById_ReadsFromPrimary() {
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("TestEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+        List<Boolean> primaryRequired = new ArrayList<>();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            Assert.assertTrue(invocation.<TransactionDefinition>getArgument(0).isReadOnly());
+            primaryRequired.add(ReplicaRoutingContext.isPrimaryRequired());
+            return null;
+        });
+        when(daoService.findById(1L)).thenAnswer(invocation -> {
+            primaryRequired.add(ReplicaRoutingContext.isPrimaryRequired());
+            return Optional.of(entity);
+        });
+
+        service.findById(1L);
+
+        // Результат попадает в кэш DTO, поэтому читается с основной базы, а не с реплики;
+        // признак выставлен уже к началу транзакции, которая по нему выбирает режим кэша второго уровня
+        Assert.assertEquals(primaryRequired, Arrays.asList(true, true));
+        Assert.assertFalse(ReplicaRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    public void testFindById_AttributesFromDocument() {
+        EavEntityServiceImpl documentService = new EavEntityServiceImpl(daoService, new SimpleMeterRegistry(),
+                transactionTemplate, cacheInvalidation, true, 3);
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("DocumentEntity");
+        // Коллекция не загружена: при чтении из копии к ней нельзя обращаться
+        entity.setAttributesDocument(Collections.singletonList(
+                new EavAttributeDocument("price", "100.5", EavValueType.DOUBLE)));
+        entity.setRelations(new HashSet<>());
+
+        when(daoService.findById(1L)).thenReturn(Optional.of(entity));
+
+        EavEntityDto dto = documentService.findById(1L);
+
+        Assert.assertEquals(dto.getAttributes().size(), 1);
+        EavAttributeValueDto attribute = dto.getAttributes().iterator().next();
+        Assert.assertEquals(attribute.getAttributeName(), "price");
+        Assert.assertEquals(attribute.getValue(), "100.5");
+        Assert.assertEquals(attribute.getValueType(), EavValueType.DOUBLE);
+    }
+
     @Test(expectedExceptions = ResourceNotFoundException.class)
     public void testFindById_NotFound() {
         Long id = 2L;
@@ -152,6 +252,255 @@ public class EavEntityServiceImplTest {
         verify(daoService, times(1)).findAll(filter);
     }
 
+    @Test
+    public void testFindPage_WithNextCursor() {
+        EavEntityFilter filter = new EavEntityFilter().setLimit(2);
+
+        EavEntity entity1 = new EavEntity();
+        entity1.setId(1L);
+        entity1.setType("PagedEntity1");
+        entity1.setAttributes(new HashSet<>());
+        entity1.setRelations(new HashSet<>());
+
+        EavEntity entity2 = new EavEntity();
+        entity2.setId(2L);
+        entity2.setType("PagedEntity2");
+        entity2.setAttributes(new HashSet<>());
+        entity2.setRelations(new HashSet<>());
+
+        List<EavEntity> entityList = new ArrayList<>();
+        entityList.add(entity1);
+        entityList.add(entity2);
+
+        when(daoService.findPage(filter)).thenReturn(new SliceImpl<>(entityList, PageRequest.ofSize(2), true));
+
+        EavEntityPageDto page = service.findPage(filter);
+
+        Assert.assertEquals(page.getItems().size(), 2, "Должны вернуться две сущности");
+        Assert.assertNotNull(page.getNextCursor(), "Курсор следующей страницы должен быть задан");
+
+        EavEntityCursor cursor = EavEntityCursor.decode(page.getNextCursor());
+        Assert.assertEquals(cursor.getType(), "PagedEntity2", "Курсор должен указывать на последнюю сущность");
+        Assert.assertEquals(cursor.getId(), Long.valueOf(2L), "Курсор должен указывать на последнюю сущность");
+    }
+
+    @Test
+    public void testFindPage_LastPage() {
+        EavEntityFilter filter = new EavEntityFilter();
+
+        when(daoService.findPage(filter)).thenReturn(new SliceImpl<>(new ArrayList<>(), PageRequest.ofSize(1), false));
+
+        EavEntityPageDto page = service.findPage(filter);
+
+        Assert.assertTrue(page.getItems().isEmpty(), "Страница должна быть пустой");
+        Assert.assertNull(page.getNextCursor(), "У последней страницы нет курсора");
+        Assert.assertEquals(filter.getLimit(), Integer.valueOf(100), "Должен применяться размер страницы по умолчанию");
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindPage_InvalidLimit() {
+        service.findPage(new EavEntityFilter().setLimit(0));
+    }
+
+    @Test
+    public void testFindIncoming_WithNextCursor() {
+        when(daoService.findIncoming(5L, 20L, 1)).thenReturn(new SliceImpl<>(
+                Collections.singletonList(new EavIncomingRelation(21L, "linked_to", 3L, "Source")),
+                PageRequest.ofSize(1), true));
+
+        EavIncomingRelationPageDto page = service.findIncoming(5L, 20L, 1);
+
+        Assert.assertEquals(page.getItems().size(), 1);
+        Assert.assertEquals(page.getItems().get(0).getSourceType(), "Source");
+        Assert.assertEquals(page.getNextCursor(), "21");
+        verify(daoService, never()).existsById(any());
+    }
+
+    @Test
+    public void testFindIncoming_NoRelations() {
+        when(daoService.findIncoming(5L, null, 100)).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(daoService.existsById(5L)).thenReturn(true);
+
+        EavIncomingRelationPageDto page = service.findIncoming(5L, null, null);
+
+        Assert.assertTrue(page.getItems().isEmpty());
+        Assert.assertNull(page.getNextCursor());
+    }
+
+    @Test(expectedExceptions = ResourceNotFoundException.class)
+    public void testFindIncoming_NotFound() {
+        when(daoService.findIncoming(99L, null, 100)).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(daoService.existsById(99L)).thenReturn(false);
+
+        service.findIncoming(99L, null, null);
+    }
+
+    @Test
+    public void testFindGraph_GroupsRowsIntoNodesAndEdges() {
+        // 1 -> 2 -> 3 -> 1: цикл, каждая сущность входит в подграф один раз
+        when(daoService.findGraph(1L, 3, "next")).thenReturn(Arrays.asList(
+                new EavGraphRow(1L, "A", 0, 10L, "next", 2L),
+                new EavGraphRow(2L, "B", 1, 11L, "next", 3L),
+                new EavGraphRow(3L, "C", 2, 12L, "next", 1L)));
+
+        EavGraphDto graph = service.findGraph(1L, 3, "next");
+
+        Assert.assertEquals(graph.getRootId(), Long.valueOf(1L));
+        Assert.assertEquals(graph.getDepth(), 3);
+        Assert.assertEquals(graph.getNodes().size(), 3);
+        Assert.assertEquals(graph.getNodes().get(2).getDepth(), 2);
+        Assert.assertEquals(graph.getEdges().size(), 3);
+        Assert.assertEquals(graph.getEdges().get(2).getSourceId(), Long.valueOf(3L));
+        Assert.assertEquals(graph.getEdges().get(2).getTargetId(), Long.valueOf(1L));
+    }
+
+    @Test
+    public void testFindGraph_DefaultAndMaxDepth() {
+        when(daoService.findGraph(eq(1L), anyInt(), eq(null))).thenReturn(Collections.singletonList(
+                new EavGraphRow(1L, "A", 0, null, null, null)));
+
+        EavGraphDto graph = service.findGraph(1L, null, " ");
+        Assert.assertEquals(graph.getNodes().size(), 1);
+        Assert.assertTrue(graph.getEdges().isEmpty());
+        service.findGraph(1L, 1000, null);
+
+        verify(daoService).findGraph(1L, 1, null);
+        verify(daoService).findGraph(1L, 10, null);
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindGraph_InvalidDepth() {
+        service.findGraph(1L, 0, null);
+    }
+
+    @Test(expectedExceptions = ResourceNotFoundException.class)
+    public void testFindGraph_NotFound() {
+        when(daoService.findGraph(99L, 1, null)).thenReturn(Collections.emptyList());
+        service.findGraph(99L, 1, null);
+    }
+
+    @Test
+    public void testFindAll_WithoutCollectionsUsesProjection() {
+        EavEntityFilter filter = new EavEntityFilter().setInclude(Collections.emptyList());
+        when(daoService.findSummaries(filter)).thenReturn(Arrays.asList(
+                new EavEntitySummary(1L, "Summary1"), new EavEntitySummary(2L, "Summary2")));
+
+        List<EavEntityDto> result = service.findAll(filter);
+
+        Assert.assertEquals(result.size(), 2);
+        Assert.assertEquals(result.get(0).getType(), "Summary1");
+        Assert.assertNull(result.get(0).getAttributes(), "Атрибуты не запрашивались");
+        Assert.assertNull(result.get(0).getRelations(), "Связи не запрашивались");
+        verify(daoService, never()).findAll(any(EavEntityFilter.class));
+    }
+
+    @Test
+    public void testFindAll_OnlyRequestedCollectionsAreMapped() {
+        EavEntityFilter filter = new EavEntityFilter().setInclude(Collections.singletonList("attributes"));
+
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("WithAttributes");
+        entity.setAttributes(new HashSet<>());
+        attribute(1L, "color", "red", entity);
+        // Незапрошенная коллекция не должна читаться: обращение к ней упадёт
+        entity.setRelations(mock(Set.class, invocation -> {
+            throw new AssertionError("Связи не должны загружаться");
+        }));
+        when(daoService.findAll(filter)).thenReturn(Collections.singletonList(entity));
+
+        List<EavEntityDto> result = service.findAll(filter);
+
+        Assert.assertEquals(result.get(0).getAttributes().size(), 1);
+        Assert.assertNull(result.get(0).getRelations());
+    }
+
+    @Test
+    public void testFindPage_WithoutCollectionsUsesProjection() {
+        EavEntityFilter filter = new EavEntityFilter().setLimit(1).setInclude(Collections.emptyList());
+        when(daoService.findSummaryPage(filter)).thenReturn(new SliceImpl<>(
+                Collections.singletonList(new EavEntitySummary(5L, "Summary5")), PageRequest.ofSize(1), true));
+
+        EavEntityPageDto page = service.findPage(filter);
+
+        Assert.assertEquals(page.getItems().size(), 1);
+        Assert.assertNull(page.getItems().get(0).getAttributes());
+        EavEntityCursor cursor = EavEntityCursor.decode(page.getNextCursor());
+        Assert.assertEquals(cursor.getId(), Long.valueOf(5L));
+        verify(daoService, never()).findPage(any(EavEntityFilter.class));
+    }
+
+    @Test
+    public void testFindPage_FullTextKeepsRankOrderAndRankCursor() {
+        EavEntityFilter filter = new EavEntityFilter().setSearch("red")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setLimit(2);
+        when(daoService.findSearchPage(filter)).thenReturn(new SliceImpl<>(Arrays.asList(
+                new EavEntitySearchHit(7L, "Hit7", 0.9f),
+                new EavEntitySearchHit(3L, "Hit3", 0.25f)), PageRequest.ofSize(2), true));
+        EavEntity first = new EavEntity();
+        first.setId(7L);
+        first.setType("Hit7");
+        first.setAttributes(new HashSet<>());
+        first.setRelations(new HashSet<>());
+        EavEntity second = new EavEntity();
+        second.setId(3L);
+        second.setType("Hit3");
+        second.setAttributes(new HashSet<>());
+        second.setRelations(new HashSet<>());
+        when(daoService.findAllById(Arrays.asList(7L, 3L), filter.getIncludes())).thenReturn(Arrays.asList(first, second));
+
+        EavEntityPageDto page = service.findPage(filter);
+
+        Assert.assertEquals(page.getItems().get(0).getId(), Long.valueOf(7L));
+        Assert.assertEquals(page.getItems().get(1).getId(), Long.valueOf(3L));
+        EavEntitySearchCursor cursor = EavEntitySearchCursor.decode(page.getNextCursor());
+        Assert.assertEquals(cursor.getId(), Long.valueOf(3L));
+        Assert.assertEquals(cursor.getRank(), 0.25f);
+        verify(daoService, never()).findPage(any(EavEntityFilter.class));
+        verify(daoService, never()).findSummaryPage(any(EavEntityFilter.class));
+    }
+
+    @Test
+    public void testFindPage_FullTextWithoutCollectionsUsesHits() {
+        EavEntityFilter filter = new EavEntityFilter().setSearch("red")
+                .setSearchMode(EavEntityFilter.SearchMode.FULL_TEXT).setInclude(Collections.emptyList());
+        when(daoService.findSearchPage(filter)).thenReturn(new SliceImpl<>(
+                Collections.singletonList(new EavEntitySearchHit(7L, "Hit7", 0.9f)), PageRequest.ofSize(100), false));
+
+        EavEntityPageDto page = service.findPage(filter);
+
+        Assert.assertEquals(page.getItems().get(0).getType(), "Hit7");
+        Assert.assertNull(page.getNextCursor());
+        Assert.assertEquals(filter.getLimit(), Integer.valueOf(100), "Должен применяться размер страницы по умолчанию");
+        verify(daoService, never()).findAllById(anyList(), any());
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testFindAll_UnknownInclude() {
+        service.findAll(new EavEntityFilter().setInclude(Collections.singletonList("children")));
+    }
+
+    @Test
+    public void testExportByType() {
+        EavEntity entity = new EavEntity();
+        entity.setId(1L);
+        entity.setType("ExportEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+
+        doAnswer(invocation -> {
+            Consumer<EavEntity> action = invocation.getArgument(1);
+            action.accept(entity);
+            return null;
+        }).when(daoService).forEachByType(eq("ExportEntity"), any());
+
+        List<EavEntityDto> exported = new ArrayList<>();
+        service.exportByType("ExportEntity", exported::add);
+
+        Assert.assertEquals(exported.size(), 1, "Должна быть выгружена одна сущность");
+        Assert.assertEquals(exported.get(0).getType(), "ExportEntity", "Тип сущности должен совпадать");
+    }
+
     @Test
     public void testSave() {
         EavEntityDto dto = new EavEntityDto();
@@ -174,6 +523,101 @@ public class EavEntityServiceImplTest {
         Assert.assertEquals(resultDto.getType(), dto.getType(), "Тип сохранённой сущности должен совпадать");
 
         verify(daoService, times(1)).save(any(EavEntity.class));
+        verify(cacheInvalidation, times(1)).publish(Collections.singletonList(10L));
+    }
+
+    @Test
+    public void testSaveAll() {
+        EavEntityDto dto1 = new EavEntityDto();
+        dto1.setType("BulkEntity1");
+        EavAttributeValueDto attributeDto = new EavAttributeValueDto();
+        attributeDto.setAttributeName("color");
+        attributeDto.setValue("red");
+        dto1.getAttributes().add(attributeDto);
+
+        EavEntityDto dto2 = new EavEntityDto();
+        dto2.setType("BulkEntity2");
+
+        when(daoService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<EavEntity> entities = invocation.getArgument(0);
+            long id = 1L;
+            for (EavEntity entity : entities) {
+                entity.setId(id++);
+            }
+            return entities;
+        });
+
+        List<Long> ids = service.saveAll(Arrays.asList(dto1, dto2));
+
+        Assert.assertEquals(ids, Arrays.asList(1L, 2L), "Должны вернуться id сохранённых сущностей");
+
+        ArgumentCaptor<List<EavEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(daoService, times(1)).saveAll(captor.capture());
+        EavAttributeValue attribute = captor.getValue().get(0).getAttributes().iterator().next();
+        Assert.assertEquals(attribute.getAttributeName(), "color", "Атрибут должен быть привязан к сущности");
+        Assert.assertSame(attribute.getEntity(), captor.getValue().get(0), "Атрибут должен быть привязан к сущности");
+        verify(cacheInvalidation, times(1)).publish(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    public void testSave_TypedAttributeValues() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("TypedEntity");
+        EavAttributeValueDto price = attributeDto("price", "100.50");
+        price.setValueType(EavValueType.DOUBLE);
+        EavAttributeValueDto created = attributeDto("created", "2024-03-01T10:00:00+03:00");
+        created.setValueType(EavValueType.TIMESTAMP);
+        dto.getAttributes().add(price);
+        dto.getAttributes().add(created);
+
+        when(daoService.save(any(EavEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.save(dto);
+
+        ArgumentCaptor<EavEntity> captor = ArgumentCaptor.forClass(EavEntity.class);
+        verify(daoService).save(captor.capture());
+        for (EavAttributeValue attribute : captor.getValue().getAttributes()) {
+            if ("price".equals(attribute.getAttributeName())) {
+                Assert.assertEquals(attribute.getValueType(), EavValueType.DOUBLE);
+                Assert.assertEquals(attribute.getDoubleValue(), 100.5, "Значение должно попасть в числовую колонку");
+                Assert.assertNull(attribute.getLongValue());
+            } else {
+                Assert.assertEquals(attribute.getValueType(), EavValueType.TIMESTAMP);
+                Assert.assertEquals(attribute.getTimestampValue(), Instant.parse("2024-03-01T07:00:00Z"),
+                        "Дата должна быть приведена к UTC");
+                Assert.assertEquals(attribute.getValue(), "2024-03-01T07:00:00Z", "Строковое значение должно быть каноническим");
+            }
+        }
+    }
+
+    @Test
+    public void testSave_SyncsAttributesDocument() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("DocumentEntity");
+        EavAttributeValueDto level = attributeDto("level", "007");
+        level.setValueType(EavValueType.LONG);
+        dto.getAttributes().add(level);
+
+        when(daoService.save(any(EavEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.save(dto);
+
+        ArgumentCaptor<EavEntity> captor = ArgumentCaptor.forClass(EavEntity.class);
+        verify(daoService).save(captor.capture());
+        // Копия обновляется при записи и хранит каноническое значение, как колонка value
+        Assert.assertEquals(captor.getValue().getAttributesDocument(),
+                Collections.singletonList(new EavAttributeDocument("level", "7", EavValueType.LONG)));
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testSave_InvalidTypedValue() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("TypedEntity");
+        EavAttributeValueDto price = attributeDto("price", "not-a-number");
+        price.setValueType(EavValueType.LONG);
+        dto.getAttributes().add(price);
+
+        service.save(dto);
     }
 
     @Test
@@ -209,6 +653,89 @@ public class EavEntityServiceImplTest {
         verify(daoService, times(1)).edit(existingEntity);
     }
 
+    @Test
+    public void testUpdate_MatchingVersion() {
+        EavEntity entity = versionedEntity(5L, 3L);
+        when(daoService.findById(5L)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenAnswer(invocation -> {
+            entity.setVersion(4L);
+            return entity;
+        });
+
+        EavEntityDto updateDto = new EavEntityDto();
+        updateDto.setType("UpdatedEntity");
+        updateDto.setVersion(3L);
+
+        EavEntityDto resultDto = service.update(5L, updateDto);
+
+        Assert.assertEquals(resultDto.getVersion(), Long.valueOf(4L), "В ответе должна быть новая версия");
+    }
+
+    @Test(expectedExceptions = PreconditionFailedException.class)
+    public void testUpdate_StaleVersion() {
+        when(daoService.findById(5L)).thenReturn(Optional.of(versionedEntity(5L, 4L)));
+
+        EavEntityDto updateDto = new EavEntityDto();
+        updateDto.setVersion(3L);
+
+        try {
+            service.update(5L, updateDto);
+        } finally {
+            verify(daoService, never()).edit(any());
+        }
+    }
+
+    @Test
+    public void testPatch_RetriedAfterVersionConflict() {
+        EavEntity entity = versionedEntity(5L, 1L);
+        when(daoService.findById(5L)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity))
+                .thenThrow(new ObjectOptimisticLockingFailureException(EavEntity.class, 5L))
+                .thenReturn(entity);
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.getAttributes().add(attributeDto("color", "red"));
+
+        EavEntityDto resultDto = service.patch(5L, patch);
+
+        Assert.assertEquals(resultDto.getAttributes().size(), 1, "Атрибут должен быть добавлен один раз");
+        // Каждая попытка — отдельная транзакция, которая заново читает сущность
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(daoService, times(2)).findById(5L);
+        // Откаченная попытка не сообщает другим узлам об изменении
+        verify(cacheInvalidation, times(1)).publish(Collections.singletonList(5L));
+    }
+
+    @Test(expectedExceptions = ConcurrentUpdateException.class)
+    public void testPatch_RetriesExhausted() {
+        EavEntity entity = versionedEntity(5L, 1L);
+        when(daoService.findById(5L)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenThrow(new ObjectOptimisticLockingFailureException(EavEntity.class, 5L));
+
+        try {
+            service.patch(5L, new EavEntityPatchDto());
+        } finally {
+            verify(daoService, times(3)).edit(entity);
+            verify(cacheInvalidation, never()).publish(anyCollection());
+        }
+    }
+
+    @Test(expectedExceptions = PreconditionFailedException.class)
+    public void testPatch_ConflictWithIfMatchIsNotRetried() {
+        EavEntity entity = versionedEntity(5L, 1L);
+        when(daoService.findById(5L)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenThrow(new OptimisticLockingFailureException("stale"));
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.setVersion(1L);
+
+        try {
+            service.patch(5L, patch);
+        } finally {
+            verify(daoService, times(1)).edit(entity);
+        }
+    }
+
     @Test(expectedExceptions = ResourceNotFoundException.class)
     public void testUpdate_NotFound() {
         Long id = 20L;
@@ -250,7 +777,7 @@ public class EavEntityServiceImplTest {
         targetEntity.setType("TargetEntity");
         targetEntity.setAttributes(new HashSet<>());
         targetEntity.setRelations(new HashSet<>());
-        when(daoService.findById(100L)).thenReturn(Optional.of(targetEntity));
+        when(daoService.findAllById(anyCollection())).thenReturn(Collections.singletonList(targetEntity));
 
         // После обновления возвращаем обновлённую сущность с добавленным отношением
         EavEntity updatedEntity = new EavEntity();
@@ -279,14 +806,235 @@ public class EavEntityServiceImplTest {
         Assert.assertEquals(resultRelation.getTargetId(), Long.valueOf(100L), "Целевая сущность должна иметь id 100");
 
         verify(daoService, times(1)).findById(mainId);
-        verify(daoService, times(1)).findById(100L);
+        verify(daoService, times(1)).findAllById(Collections.singleton(100L));
         verify(daoService, times(1)).edit(existingEntity);
     }
 
+    @Test
+    public void testSave_WithManyRelations_SingleLookup() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("RelationHeavy");
+        dto.setAttributes(new HashSet<>());
+        HashSet<EavRelationDto> relationsDto = new HashSet<>();
+        List<EavEntity> targets = new ArrayList<>();
+        for (long targetId = 1; targetId <= 50; targetId++) {
+            EavRelationDto relationDto = new EavRelationDto();
+            relationDto.setTargetId(targetId);
+            relationDto.setRelationType("linked_to_" + targetId);
+            relationsDto.add(relationDto);
+
+            EavEntity target = new EavEntity();
+            target.setId(targetId);
+            target.setType("Target" + targetId);
+            targets.add(target);
+        }
+        dto.setRelations(relationsDto);
+
+        when(daoService.findAllById(anyCollection())).thenReturn(targets);
+        when(daoService.save(any(EavEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EavEntityDto resultDto = service.save(dto);
+
+        Assert.assertEquals(resultDto.getRelations().size(), 50, "Должно быть 50 связей");
+        // Все цели разрешаются одним запросом, без поиска по одной
+        verify(daoService, times(1)).findAllById(anyCollection());
+        verify(daoService, never()).findById(any());
+    }
+
+    @Test
+    public void testSave_MissingTargets_ReportedTogether() {
+        EavEntityDto dto = new EavEntityDto();
+        dto.setType("BrokenRelations");
+        HashSet<EavRelationDto> relationsDto = new HashSet<>();
+        for (long targetId = 1; targetId <= 3; targetId++) {
+            EavRelationDto relationDto = new EavRelationDto();
+            relationDto.setTargetId(targetId);
+            relationDto.setRelationType("linked_to_" + targetId);
+            relationsDto.add(relationDto);
+        }
+        dto.setRelations(relationsDto);
+
+        EavEntity existing = new EavEntity();
+        existing.setId(2L);
+        when(daoService.findAllById(anyCollection())).thenReturn(Collections.singletonList(existing));
+
+        try {
+            service.save(dto);
+            Assert.fail("Ожидалось ResourceNotFoundException");
+        } catch (ResourceNotFoundException e) {
+            Assert.assertEquals(e.getMessage(), "Сущности не найдены, id: [1, 3]",
+                    "Все отсутствующие id должны быть перечислены в одном сообщении");
+        }
+        verify(daoService, never()).save(any(EavEntity.class));
+    }
+
+    @Test
+    public void testPatch_UpsertsAndRemovesAttributes() {
+        Long id = 7L;
+        EavEntity entity = new EavEntity();
+        entity.setId(id);
+        entity.setType("PatchedEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+
+        // Два дубликата "color", накопленные через PUT, и атрибут "size" для удаления
+        EavAttributeValue color1 = attribute(1L, "color", "red", entity);
+        EavAttributeValue color2 = attribute(2L, "color", "green", entity);
+        EavAttributeValue size = attribute(3L, "size", "L", entity);
+        EavAttributeValue weight = attribute(4L, "weight", "10", entity);
+
+        when(daoService.findById(id)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenReturn(entity);
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.getAttributes().add(attributeDto("color", "blue"));
+        patch.getAttributes().add(attributeDto("weight", "10"));
+        patch.getAttributes().add(attributeDto("material", "wool"));
+        patch.getRemoveAttributes().add("size");
+
+        EavEntityDto resultDto = service.patch(id, patch);
+
+        Assert.assertEquals(resultDto.getAttributes().size(), 3, "Должны остаться color, weight и material");
+        Assert.assertEquals(entity.getAttributes().stream().filter(a -> "color".equals(a.getAttributeName())).count(), 1L,
+                "Дубликаты color должны быть схлопнуты в одну строку");
+        EavAttributeValue color = entity.getAttributes().stream()
+                .filter(a -> "color".equals(a.getAttributeName())).findFirst().orElseThrow();
+        Assert.assertEquals(color.getValue(), "blue", "Значение color должно быть обновлено");
+        Assert.assertTrue(color == color1 || color == color2, "Существующая строка должна обновляться, а не пересоздаваться");
+        Assert.assertFalse(entity.getAttributes().contains(size), "Атрибут size должен быть удалён");
+        Assert.assertSame(entity.getAttributes().stream()
+                .filter(a -> "weight".equals(a.getAttributeName())).findFirst().orElseThrow(), weight,
+                "Неизменённый атрибут должен остаться прежним объектом");
+        Assert.assertNull(entity.getAttributes().stream()
+                .filter(a -> "material".equals(a.getAttributeName())).findFirst().orElseThrow().getId(),
+                "Новый атрибут должен быть вставлен");
+    }
+
+    @Test
+    public void testPatch_AddsAndRemovesRelations() {
+        Long id = 8L;
+        EavEntity entity = new EavEntity();
+        entity.setId(id);
+        entity.setType("PatchedEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+
+        EavEntity existingTarget = new EavEntity();
+        existingTarget.setId(100L);
+        EavRelation existingRelation = new EavRelation();
+        existingRelation.setId(50L);
+        existingRelation.setRelationType("friend");
+        existingRelation.setTarget(existingTarget);
+        existingRelation.setSource(entity);
+        entity.getRelations().add(existingRelation);
+
+        EavEntity siblingTarget = new EavEntity();
+        siblingTarget.setId(300L);
+        EavRelation siblingRelation = new EavRelation();
+        siblingRelation.setId(51L);
+        siblingRelation.setRelationType("sibling");
+        siblingRelation.setTarget(siblingTarget);
+        siblingRelation.setSource(entity);
+        entity.getRelations().add(siblingRelation);
+
+        EavEntity newTarget = new EavEntity();
+        newTarget.setId(200L);
+
+        when(daoService.findById(id)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenReturn(entity);
+        when(daoService.findAllById(anyCollection())).thenReturn(Collections.singletonList(newTarget));
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.getRelations().add(relationDto("friend", 100L));
+        patch.getRelations().add(relationDto("parent", 200L));
+        EavRelationDto removeDto = new EavRelationDto();
+        removeDto.setId(51L);
+        patch.getRemoveRelations().add(removeDto);
+
+        service.patch(id, patch);
+
+        Assert.assertEquals(entity.getRelations().size(), 2, "friend остаётся, sibling удалена, parent добавлена");
+        Assert.assertTrue(entity.getRelations().contains(existingRelation), "Существующая связь не пересоздаётся");
+        Assert.assertFalse(entity.getRelations().contains(siblingRelation), "sibling должна быть удалена");
+        EavRelation relation = entity.getRelations().stream()
+                .filter(r -> "parent".equals(r.getRelationType())).findFirst().orElseThrow();
+        Assert.assertSame(relation.getTarget(), newTarget);
+        // Цель уже существующей связи не запрашивается повторно
+        verify(daoService, times(1)).findAllById(Collections.singleton(200L));
+    }
+
+    @Test
+    public void testPatch_ResolvesTargetsBeforeChangingEntity() {
+        Long id = 9L;
+        EavEntity entity = new EavEntity();
+        entity.setId(id);
+        entity.setType("PatchedEntity");
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+        EavEntity target = new EavEntity();
+        target.setId(200L);
+
+        when(daoService.findById(id)).thenReturn(Optional.of(entity));
+        when(daoService.edit(entity)).thenReturn(entity);
+        // Запрос целей может сбросить контекст: к этому моменту сущность ещё не должна быть изменена
+        when(daoService.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Assert.assertTrue(entity.getAttributes().isEmpty(), "Атрибут добавлен до загрузки целей связей");
+            Assert.assertEquals(entity.getType(), "PatchedEntity");
+            return Collections.singletonList(target);
+        });
+
+        EavEntityPatchDto patch = new EavEntityPatchDto();
+        patch.setType("Renamed");
+        patch.getAttributes().add(attributeDto("color", "blue"));
+        patch.getRelations().add(relationDto("parent", 200L));
+
+        service.patch(id, patch);
+
+        Assert.assertEquals(entity.getAttributes().size(), 1);
+        Assert.assertEquals(entity.getRelations().size(), 1);
+        Assert.assertEquals(entity.getType(), "Renamed");
+    }
+
+    private static EavAttributeValue attribute(Long id, String name, String value, EavEntity entity) {
+        EavAttributeValue attribute = new EavAttributeValue();
+        attribute.setId(id);
+        attribute.setAttributeName(name);
+        attribute.setValue(value);
+        attribute.setEntity(entity);
+        entity.getAttributes().add(attribute);
+        return attribute;
+    }
+
+    private static EavAttributeValueDto attributeDto(String name, String value) {
+        EavAttributeValueDto attributeDto = new EavAttributeValueDto();
+        attributeDto.setAttributeName(name);
+        attributeDto.setValue(value);
+        return attributeDto;
+    }
+
+    private static EavEntity versionedEntity(Long id, Long version) {
+        EavEntity entity = new EavEntity();
+        entity.setId(id);
+        entity.setType("VersionedEntity");
+        entity.setVersion(version);
+        entity.setAttributes(new HashSet<>());
+        entity.setRelations(new HashSet<>());
+        return entity;
+    }
+
+    private static EavRelationDto relationDto(String relationType, Long targetId) {
+        EavRelationDto relationDto = new EavRelationDto();
+        relationDto.setRelationType(relationType);
+        relationDto.setTargetId(targetId);
+        return relationDto;
+    }
+
     @Test
     public void testDeleteEntity() {
         Long id = 3L;
         service.deleteEntity(id);
         verify(daoService, times(1)).deleteEntity(id);
+        // Удаляются и входящие связи других сущностей, поэтому другие узлы сбрасывают кэш целиком
+        verify(cacheInvalidation, times(1)).publishAll();
     }
-}
\ No newline at end of file
+}